@@ -0,0 +1,55 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.Edge;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one ant step in AgentCore at various vertex degrees, both from
+ * primitive arrays (in-process engines) and from Edge messages (networked
+ * agents).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentCoreBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int degree;
+
+    private AgentCore agent;
+    private int[] nodes;
+    private float[] levels;
+    private List<Edge> edges;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(1);
+        agent = new AgentCore(0, 1, degree + 1, 1L);
+        nodes = new int[degree];
+        levels = new float[degree];
+        edges = new ArrayList<>(degree);
+        for (int i = 0; i < degree; i++) {
+            nodes[i] = i + 2;
+            levels[i] = (float) random.nextDouble();
+            edges.add(Edge.newBuilder().setNodeId(nodes[i]).setPheromoneLevel(levels[i]).build());
+        }
+    }
+
+    @Benchmark
+    public int traverseArrays() {
+        return agent.traverse(nodes, levels, degree);
+    }
+
+    @Benchmark
+    public Edge traverseEdges() {
+        return agent.traverse(edges);
+    }
+}
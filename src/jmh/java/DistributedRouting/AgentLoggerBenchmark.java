@@ -0,0 +1,118 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.MessageLog;
+import DistributedRouting.grpc.NeighborsReply;
+import DistributedRouting.grpc.NeighborsRequest;
+import DistributedRouting.grpc.StatusReply;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.visual.GraphRenderer;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side cost of the GetNeighbors and SendLog handlers, called
+ * in-process so that no network time is included. The renderer draws on a
+ * GraphStream model that is built but never displayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentLoggerBenchmark {
+
+    private static final int NUM_ANTS = 16;
+
+    @Param({"20", "1000"})
+    public int numVertices;
+
+    private GraphRenderer renderer;
+    private SnapshotExporter exporter;
+    private AgentController.AgentLoggerImpl logger;
+    private NeighborsRequest[] positions;
+    private MessageLog[] moves;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = 0;
+    }
+
+    @Setup
+    public void setup() {
+        RawGraph graph = SampleGraphs.erdosReyniGraph(numVertices, 10f / numVertices, new Random(1))
+                .asUndirectedGraph();
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), Constants.INCREMENT, Constants.DECAY,
+                PheromoneStore.periodClock(100, TimeUnit.MILLISECONDS));
+        renderer = new GraphRenderer(AgentController.buildGraph(graph), pheromones, 30, 1 << 16);
+        for (int i = 0; i < NUM_ANTS; i++) {
+            renderer.addAnt(i, "#000000");
+        }
+        renderer.start();
+        exporter = new SnapshotExporter(pheromones, renderer, Paths.get("snapshots"));
+        logger = new AgentController.AgentLoggerImpl(graph, pheromones, renderer, exporter, new Metrics(),
+                new ConvergenceMonitor(graph, pheromones), null);
+
+        // One request per edge direction, cycled through by the benchmarks.
+        int entries = 2 * graph.numEdges();
+        positions = new NeighborsRequest[entries];
+        moves = new MessageLog[entries];
+        int i = 0;
+        for (int e = 0; e < graph.numEdges(); e++) {
+            for (int direction = 0; direction < 2; direction++) {
+                int from = (direction == 0) ? graph.edgeSource(e) : graph.edgeTarget(e);
+                int to = (direction == 0) ? graph.edgeTarget(e) : graph.edgeSource(e);
+                positions[i] = NeighborsRequest.newBuilder().setNodeId(to).setPrevNode(from).build();
+                moves[i] = MessageLog.newBuilder().setAntId(i % NUM_ANTS)
+                        .setPrevVertex(from).setNextVertex(to).setModifier(1).build();
+                i++;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        exporter.close();
+        renderer.close();
+    }
+
+    @Benchmark
+    public void getNeighbors(Cursor cursor, Blackhole blackhole) {
+        logger.getNeighbors(positions[cursor.next++ % positions.length], new Sink<NeighborsReply>(blackhole));
+    }
+
+    @Benchmark
+    public void sendLog(Cursor cursor, Blackhole blackhole) {
+        logger.sendLog(moves[cursor.next++ % moves.length], new Sink<StatusReply>(blackhole));
+    }
+
+    private static class Sink<T> implements StreamObserver<T> {
+        private final Blackhole blackhole;
+
+        Sink(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onNext(T value) {
+            blackhole.consume(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+
+        @Override
+        public void onCompleted() {}
+    }
+}
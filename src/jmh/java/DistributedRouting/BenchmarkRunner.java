@@ -0,0 +1,30 @@
+package DistributedRouting;
+
+import DistributedRouting.util.Logging;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON, so that runs can be
+ * compared over time. Accepts the usual JMH command line, e.g. a benchmark
+ * name pattern or {@code -p degree=64}.
+ */
+public class BenchmarkRunner {
+
+    private static final String RESULTS_FILE = "jmh-results.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTS_FILE)
+                .build();
+        new Runner(options).run();
+        Logging.logInfo("Benchmark results written to " + RESULTS_FILE);
+    }
+}
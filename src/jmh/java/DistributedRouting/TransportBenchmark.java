@@ -0,0 +1,126 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.LogGrpc;
+import DistributedRouting.network.Candidates;
+import DistributedRouting.network.FramedServer;
+import DistributedRouting.network.FramedStepTransport;
+import DistributedRouting.network.StepTransport;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.visual.GraphRenderer;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Round trip of a step over loopback, through the gRPC Step stream or the
+ * framed transport, both served by the same AgentLoggerImpl. Each benchmark
+ * thread is one ant with a connection of its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final int NUM_ANTS = 64;
+
+    @Param({"grpc", "framed"})
+    public String transport;
+
+    private RawGraph graph;
+    private GraphRenderer renderer;
+    private SnapshotExporter exporter;
+    private Server grpcServer;
+    private FramedServer framedServer;
+    private final AtomicInteger nextAnt = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Ant {
+        StepTransport transport;
+        ManagedChannel channel;
+        Candidates candidates = new Candidates();
+        int antId;
+        int edge = 0;
+
+        @Setup
+        public void setup(TransportBenchmark benchmark) throws IOException {
+            antId = benchmark.nextAnt.getAndIncrement() % NUM_ANTS;
+            if (benchmark.transport.equals("grpc")) {
+                channel = Grpc.newChannelBuilder("localhost:" + benchmark.grpcServer.getPort(),
+                        InsecureChannelCredentials.create()).build();
+                transport = new GrpcStepTransport(LogGrpc.newStub(channel));
+            } else {
+                transport = new FramedStepTransport(
+                        new InetSocketAddress("localhost", benchmark.framedServer.getPort()));
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            transport.close();
+            if (channel != null) {
+                channel.shutdownNow();
+            }
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        graph = SampleGraphs.erdosReyniGraph(1000, 10f / 1000, new Random(1)).asUndirectedGraph();
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), Constants.INCREMENT, Constants.DECAY,
+                PheromoneStore.periodClock(100, TimeUnit.MILLISECONDS));
+        renderer = new GraphRenderer(AgentController.buildGraph(graph), pheromones, 30, 1 << 16);
+        for (int i = 0; i < NUM_ANTS; i++) {
+            renderer.addAnt(i, "#000000");
+        }
+        renderer.start();
+        exporter = new SnapshotExporter(pheromones, renderer, Paths.get("snapshots"));
+        AgentController.AgentLoggerImpl logger = new AgentController.AgentLoggerImpl(graph, pheromones, renderer,
+                exporter, new Metrics(), new ConvergenceMonitor(graph, pheromones), null);
+        if (transport.equals("grpc")) {
+            grpcServer = Grpc.newServerBuilderForPort(0, InsecureServerCredentials.create())
+                    .addService(logger).build().start();
+        } else {
+            framedServer = new FramedServer(logger, 0).start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        if (grpcServer != null) {
+            grpcServer.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (framedServer != null) {
+            framedServer.close();
+        }
+        exporter.close();
+        renderer.close();
+    }
+
+    /**
+     * Walks the ant along every edge in turn, so each step reports a real move.
+     */
+    @Benchmark
+    public void step(Ant ant, Blackhole blackhole) throws IOException {
+        int e = ant.edge++ % graph.numEdges();
+        ant.transport.step(ant.antId, graph.edgeSource(e), graph.edgeTarget(e), 1, 0, ant.candidates);
+        blackhole.consume(ant.candidates.count());
+    }
+}
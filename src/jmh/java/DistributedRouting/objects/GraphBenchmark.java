@@ -0,0 +1,62 @@
+package DistributedRouting.objects;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating sample graphs and of building the undirected CSR index.
+ * Graphs have an average degree of about 5 whatever their size. The quadratic
+ * Erdős–Rényi generator would not finish on a million vertices, so that size
+ * is left out of the defaults; run it on the other benchmarks only, with
+ * {@code -p numVertices=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numVertices;
+
+    private RawGraph directed;
+
+    private float edgeProbability() {
+        return 5f / numVertices;
+    }
+
+    @Setup
+    public void setup() {
+        RawGraph.Builder builder = new RawGraph.Builder(1, numVertices).addVertexRange(1, numVertices);
+        Random random = new Random(1);
+        long numEdges = (long) (edgeProbability() * numVertices * (numVertices - 1) / 2);
+        for (long e = 0; e < numEdges; e++) {
+            builder.addEdge(1 + random.nextInt(numVertices), 1 + random.nextInt(numVertices));
+        }
+        directed = builder.build();
+    }
+
+    @Benchmark
+    public RawGraph asUndirectedGraph() {
+        return directed.asUndirectedGraph();
+    }
+
+    @Benchmark
+    public RawGraph erdosReyniGraph() {
+        return SampleGraphs.erdosReyniGraph(numVertices, edgeProbability(), new Random(1));
+    }
+
+    @Benchmark
+    public RawGraph fastErdosReyniGraph() {
+        return SampleGraphs.fastErdosReyniGraph(numVertices, edgeProbability(), 1, false);
+    }
+
+    @Benchmark
+    public RawGraph fastErdosReyniGraphParallel() {
+        return SampleGraphs.fastErdosReyniGraph(numVertices, edgeProbability(), 1, true);
+    }
+}
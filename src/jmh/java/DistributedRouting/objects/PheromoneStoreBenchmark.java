@@ -0,0 +1,62 @@
+package DistributedRouting.objects;
+
+import DistributedRouting.util.Constants;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of evaporation. There is no sweep anymore, so this measures reading
+ * every edge of the store after some ticks have gone by, which is what a
+ * sweep used to pay on every period, along with single reads and deposits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PheromoneStoreBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int numEdges;
+
+    private final AtomicInteger clock = new AtomicInteger();
+    private PheromoneStore store;
+
+    @State(Scope.Thread)
+    public static class Edges {
+        final SplittableRandom random = new SplittableRandom(1);
+    }
+
+    @Setup
+    public void setup() {
+        store = new PheromoneStore(numEdges, Constants.INCREMENT, Constants.DECAY, clock::get);
+        for (int e = 0; e < numEdges; e += 2) {
+            store.deposit(e, 0.5f);
+        }
+        clock.set(10);
+    }
+
+    @Benchmark
+    public float readAll() {
+        float total = 0;
+        for (int e = 0; e < numEdges; e++) {
+            total += store.get(e);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public float read(Edges edges) {
+        return store.get(edges.random.nextInt(numEdges));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public float deposit(Edges edges) {
+        return store.deposit(edges.random.nextInt(numEdges), Constants.INCREMENT);
+    }
+}
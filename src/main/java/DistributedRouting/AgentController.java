@@ -1,35 +1,50 @@
 package DistributedRouting;
 
 import DistributedRouting.grpc.*;
+import DistributedRouting.network.Candidates;
+import DistributedRouting.network.FramedServer;
+import DistributedRouting.network.FramedStepTransport;
+import DistributedRouting.network.StepHandler;
+import DistributedRouting.network.StepTransport;
+import DistributedRouting.objects.MoveLog;
+import DistributedRouting.objects.PheromoneStore;
 import DistributedRouting.objects.RawGraph;
 import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.AgentExecutors;
 import DistributedRouting.util.Constants;
+import DistributedRouting.util.LatencyHistogram;
 import DistributedRouting.util.Logging;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.util.TickScheduler;
+import DistributedRouting.visual.GraphRenderer;
+import DistributedRouting.visual.Visualizer;
 import io.grpc.Grpc;
 import io.grpc.InsecureServerCredentials;
 import io.grpc.Server;
 import io.grpc.stub.StreamObserver;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
 
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.SingleGraph;
-import org.graphstream.stream.file.FileSinkImages;
-import org.graphstream.ui.spriteManager.Sprite;
-import org.graphstream.ui.spriteManager.SpriteManager;
 
 public class AgentController {
 
-    private static Map<String, Float> pheromoneMap = new HashMap<>();
-
-    public static Server initializeListener(RawGraph graph, Graph graphVis, SpriteManager manager, Lock mapLock) throws Exception {
+    public static Server initializeListener(AgentLoggerImpl logger, TopologyPublisher publisher,
+                                            TopologyMutator mutator) throws Exception {
         Server server = Grpc.newServerBuilderForPort(Constants.MESSAGE_PORT, InsecureServerCredentials.create())
-                .addService(new AgentLoggerImpl(graph, graphVis, manager, mapLock))
+                .addService(logger)
+                .addService(publisher)
+                .addService(mutator)
                 .build()
                 .start();
         Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -53,10 +68,6 @@ public class AgentController {
         return String.format("rgb(%d,%d,0)", Math.round(255*(1-pheromoneValue)), Math.round(255*pheromoneValue));
     }
 
-    private static String antNameForId(int id) {
-        return String.format("ant_%d", id);
-    }
-
     private static String edgeLabel(String start, String end) {
         if (start.compareTo(end) > 0) {
             return String.format("(%s,%s)", end, start);
@@ -69,7 +80,27 @@ public class AgentController {
         return edgeLabel(String.valueOf(start), String.valueOf(end));
     }
 
+    /**
+     * Draws a graph.
+     *
+     * @param rawGraph  Graph to draw.
+     * @return          The displayed GraphStream graph.
+     */
     public static Graph drawGraph(RawGraph rawGraph) {
+        Graph graph = buildGraph(rawGraph);
+        graph.display();
+        return graph;
+    }
+
+    /**
+     * Builds the GraphStream model of a graph without displaying it. Edges are
+     * added in edge id order, so the GraphStream index of every edge is its id
+     * in the RawGraph.
+     *
+     * @param rawGraph  Graph to convert.
+     * @return          The GraphStream graph.
+     */
+    public static Graph buildGraph(RawGraph rawGraph) {
         Graph graph = new SingleGraph("Graph");
         graph.setAttribute("ui.stylesheet", """
                 edge {
@@ -85,25 +116,21 @@ public class AgentController {
                 node.terminal {
                     fill-color: blue;
                 }""");
-        for (Integer vertex : rawGraph.getVertices()) {
-            graph.addNode(vertex.toString());
+        for (int vertex : rawGraph.getVertices()) {
+            graph.addNode(String.valueOf(vertex));
         }
         graph.getNode(String.valueOf(rawGraph.getSource())).setAttribute("ui.class", "terminal");
         graph.getNode(String.valueOf(rawGraph.getDest())).setAttribute("ui.class", "terminal");
-        for (Map.Entry<Integer, Set<Integer>> entry : rawGraph.getEdges().entrySet()) {
-            String s = entry.getKey().toString();
-            for (Integer dest : entry.getValue()) {
-                String d = dest.toString();
-                String label = edgeLabel(s,d);
-                graph.addEdge(label, s, d);
-                pheromoneMap.put(label, Constants.INCREMENT);
-                graph.getEdge(label).setAttribute("ui.color", 0);
-                /*graph.getEdge(label).setAttribute(
-                        "ui.style",
-                        "fill-color: " + pheromoneToColor(0f) + ";");*/
-            }
+        for (int e = 0; e < rawGraph.numEdges(); e++) {
+            String s = String.valueOf(rawGraph.edgeSource(e));
+            String d = String.valueOf(rawGraph.edgeTarget(e));
+            String label = edgeLabel(s,d);
+            graph.addEdge(label, s, d);
+            graph.getEdge(label).setAttribute("ui.color", 0);
+            /*graph.getEdge(label).setAttribute(
+                    "ui.style",
+                    "fill-color: " + pheromoneToColor(0f) + ";");*/
         }
-        graph.display();
         return graph;
     }
 
@@ -111,179 +138,526 @@ public class AgentController {
      * Seeds
      *  5843648202025435093
      *  Small graph: 5924385651977311760
-     * @param args
+     * @param args  Pass --headless to run without drawing the graph, and
+     *              --record followed by a file to log every move for {@link MoveReplay},
+     *              --framed to step over the framed transport instead of gRPC,
+     *              --remote to have ants fetch their candidates from the controller on
+     *              every move instead of keeping a copy of the topology, --ants-per-host
+     *              followed by a number to step that many remote ants per BatchStep call,
+     *              and --fail-route to fail a link of the route once it starts to settle.
      */
     public static void main(String[] args) {
         int numVertices = 20;
+        boolean headless = Arrays.asList(args).contains("--headless");
+        boolean framed = Arrays.asList(args).contains("--framed");
+        boolean remote = Arrays.asList(args).contains("--remote");
+        int perHost = Arrays.asList(args).indexOf("--ants-per-host");
+        boolean failRoute = Arrays.asList(args).contains("--fail-route");
+        int record = Arrays.asList(args).indexOf("--record");
         Scanner inputReader = new Scanner(System.in);
         System.out.println("Seed?");
         String seed = inputReader.nextLine();
-        Random random;
+        long currSeed;
         if (seed.isEmpty()) {
-            random = new Random();
-            Long currSeed = random.nextLong();
-            random.setSeed(currSeed);
+            currSeed = new Random().nextLong();
             System.out.println("Using seed: " + currSeed);
         } else {
-            random = new Random(Long.valueOf(seed));
+            currSeed = Long.valueOf(seed);
+        }
+        Random random = new Random(currSeed);
+        // The drawn graph and the move log are indexed by the edge ids of the
+        // initial graph, which change when an edge is removed.
+        boolean mutable = headless && record < 0;
+        if (failRoute && !mutable) {
+            Logging.logError("--fail-route needs --headless and no --record, ignoring it");
+            failRoute = false;
         }
 
-        RawGraph graph = SampleGraphs.erdosReyniGraph(numVertices,0.2f, random);
-        Graph graphVis = drawGraph(graph);
-        SpriteManager manager = new SpriteManager(graphVis);
-        Lock mapLock = new ReentrantLock();
+        RawGraph graph = SampleGraphs.erdosReyniGraph(numVertices,0.2f, random).asUndirectedGraph();
+        // Levels decay once every 100ms, evaluated lazily whenever an edge is read.
+        // With room for edges added while the colony runs.
+        int numSlots = graph.numEdges() + (mutable ? Constants.SPARE_EDGES : 0);
+        PheromoneStore pheromones = new PheromoneStore(numSlots, Constants.INCREMENT, Constants.DECAY,
+                PheromoneStore.periodClock(100, TimeUnit.MILLISECONDS));
+        MoveLog moveLog = null;
+        if (record >= 0) {
+            try {
+                moveLog = MoveLog.create(Paths.get(args[record + 1]), graph, pheromones, Constants.INCREMENT,
+                        TimeUnit.MILLISECONDS.toNanos(100));
+            } catch (IOException ex) {
+                Logging.logError("Failed to create move log: " + ex.getMessage());
+            }
+        }
+        int numAnts = 15;
+        GraphRenderer renderer = null;
+        if (!headless) {
+            renderer = new GraphRenderer(drawGraph(graph), pheromones, 30, 1 << 16);
+            for (int i = 0; i < numAnts; i++) {
+                // Give each ant a different color.
+                int nextInt = random.nextInt(0xffffff + 1);
+                renderer.addAnt(i, String.format("#%06x", nextInt));
+            }
+            renderer.start();
+        }
+        Visualizer visualizer = headless ? Visualizer.HEADLESS : renderer;
+        SnapshotExporter exporter = new SnapshotExporter(pheromones, visualizer, Paths.get("snapshots"));
+        Metrics metrics = new Metrics();
+        metrics.gauge("pheromone.depositRetries", pheromones::getDepositRetries);
+        if (renderer != null) {
+            metrics.gauge("renderer.droppedMoves", renderer::getDropped);
+        }
+        metrics.register("DistributedRouting:type=Metrics");
+        // Ants are told to stop once the route has settled. With --fail-route,
+        // a link fails before that, so they stop on the route found around it.
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, pheromones)
+                .recordReconvergence(metrics.latency("Reconvergence"));
+        // Pushes level changes of more than 5% to agents once per move period.
+        TopologyPublisher publisher = new TopologyPublisher(graph, pheromones, monitor, 0.05f)
+                .start(50, TimeUnit.MILLISECONDS);
+        metrics.gauge("topology.subscribers", publisher::getSubscribers);
+        metrics.gauge("topology.publishedEdges", publisher::getPublishedEdges);
+        AgentLoggerImpl logger = new AgentLoggerImpl(graph, pheromones, visualizer, exporter, metrics, monitor,
+                moveLog);
+        TopologyMutator mutator = new TopologyMutator(graph, pheromones, Constants.INCREMENT)
+                .addListener(logger::topologyChanged)
+                .addListener(monitor::topologyChanged)
+                .addListener(publisher::topologyChanged);
+        if (!mutable) {
+            mutator.refuseChanges("The graph cannot change while it is drawn or recorded");
+        }
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        boolean[] failed = {!failRoute};
+        // Every 500ms, i.e. every 10 moves of an ant.
+        sampler.scheduleAtFixedRate(() -> {
+            monitor.sample();
+            // Before the colony counts as converged and ants stop.
+            if (!failed[0] && monitor.getStability() >= 0.5) {
+                failed[0] = failLink(mutator, monitor.getDominantRoute());
+            }
+        }, 500, 500, TimeUnit.MILLISECONDS);
+        Server server = null;
         try {
-            initializeListener(graph.asUndirectedGraph(), graphVis, manager, mapLock);
+            server = initializeListener(logger, publisher, mutator);
         } catch (Exception ex) {
             Logging.logError("Failed to start logging service");
             ex.printStackTrace();
         }
+        FramedServer framedServer = null;
+        if (framed) {
+            try {
+                framedServer = new FramedServer(logger, Constants.FRAME_PORT).start();
+            } catch (IOException ex) {
+                Logging.logError("Failed to start framed server: " + ex.getMessage());
+                return;
+            }
+        }
 
         // Wait to start
         inputReader.nextLine();
 
-        int numAnts = 15;
+        // Ants pick moves from a local copy of the topology and only report them.
+        boolean localTopology = !framed && !remote;
+        // Otherwise, ants driven together by one AgentHost. With 1, every ant gets its own AgentRunner.
+        int antsPerHost = (perHost >= 0) ? Integer.parseInt(args[perHost + 1]) : 1;
+        if (antsPerHost > 1 && (localTopology || framed)) {
+            Logging.logError("--ants-per-host needs --remote and gRPC, ignoring it");
+            antsPerHost = 1;
+        }
+        // Agents only wait on their scheduler or the controller, so run them on virtual threads
+        // where the JVM has them.
+        ExecutorService agentExecutor = AgentExecutors.virtualThreads();
+
+        List<AgentCore> colony = AgentCore.createColony(graph, numAnts, currSeed);
         // We'll wait till all threads terminate
-        CountDownLatch countdown = new CountDownLatch(numAnts);
-
-        for (int i = 0; i < numAnts; i++) {
-            // Start off the ants on vertex 1
-            int startingVertex = 1;
-            int destination = numVertices;
-            if (i > numAnts/2) {
-                startingVertex = numVertices;
-                destination = 1;
+        CountDownLatch countdown;
+        // A few channels carry the calls of every ant, whatever their number.
+        ChannelPool channels = new ChannelPool(String.format("localhost:%d", Constants.MESSAGE_PORT), 4);
+        AsyncLogClient client = new AsyncLogClient(channels, 64);
+        metrics.gauge("client.inFlight", client::getInFlight);
+        metrics.gauge("client.droppedSaves", client::getDroppedSaves);
+        if (localTopology) {
+            countdown = new CountDownLatch(numAnts);
+            // One copy of the topology serves every ant.
+            try {
+                TopologyCache cache = TopologyCache.subscribe(TopologyGrpc.newStub(channels.next()))
+                        .awaitReady(10, TimeUnit.SECONDS);
+                for (AgentCore core : colony) {
+                    agentExecutor.submit(new LocalAgentRunner(core, cache, client,
+                            TickScheduler.fixedRate(50, TimeUnit.MILLISECONDS), countdown, metrics));
+                }
+            } catch (InterruptedException | TimeoutException ex) {
+                Logging.logError("Failed to fetch the topology: " + ex.getMessage());
+                return;
+            }
+        } else if (antsPerHost > 1) {
+            countdown = new CountDownLatch((numAnts + antsPerHost - 1) / antsPerHost);
+            for (int first = 0; first < numAnts; first += antsPerHost) {
+                List<AgentCore> cores = colony.subList(first, Math.min(numAnts, first + antsPerHost));
+                agentExecutor.submit(new AgentHost(cores, channels, TickScheduler.fixedRate(50, TimeUnit.MILLISECONDS),
+                        countdown, metrics));
+            }
+        } else {
+            countdown = new CountDownLatch(numAnts);
+            for (AgentCore core : colony) {
+                TickScheduler scheduler = TickScheduler.fixedRate(50, TimeUnit.MILLISECONDS);
+                if (framed) {
+                    try {
+                        StepTransport transport = new FramedStepTransport(
+                                new InetSocketAddress("localhost", Constants.FRAME_PORT));
+                        agentExecutor.submit(new AgentRunner(core, transport, scheduler, countdown, metrics));
+                    } catch (IOException ex) {
+                        Logging.logError("Agent " + core.getId() + " failed to connect: " + ex.getMessage());
+                        countdown.countDown();
+                    }
+                } else {
+                    agentExecutor.submit(new AgentRunner(core, channels, scheduler, countdown, metrics));
+                }
             }
-            Thread agent = new Thread(new AgentRunner(i, startingVertex, destination, countdown));
-            agent.start();
-
-            // Give each ant a different color.
-            manager.addSprite(antNameForId(i));
-            int nextInt = random.nextInt(0xffffff + 1);
-            String colorCode = String.format("#%06x", nextInt);
-
-            graphVis.setAttribute("ui.stylesheet",
-                    "sprite#" + antNameForId(i) + " { fill-color: " + colorCode + "; }");
         }
 
-        new Thread(new Decay(pheromoneMap, mapLock, countdown)).start();
-
         try {
             countdown.await();
         } catch (InterruptedException ex) {
             Logging.logError("Failed to wait on threads!");
             ex.printStackTrace();
         }
+        agentExecutor.shutdown();
+        sampler.shutdown();
+        boolean stopped = false;
+        try {
+            publisher.close();
+            if (!client.awaitIdle(5, TimeUnit.SECONDS)) {
+                Logging.logError("Snapshot requests still in flight at shutdown");
+            }
+        } catch (InterruptedException ex) {
+            Logging.logError("Interrupted while closing the publisher");
+        } finally {
+            channels.close();
+            // Whatever happened above, so that no move arrives once the log is closed.
+            stopped = stopServers(server, framedServer);
+        }
+        try {
+            exporter.close();
+            if (renderer != null) {
+                renderer.close();
+            }
+        } catch (InterruptedException ex) {
+            Logging.logError("Interrupted while saving the last snapshots");
+        }
+        if (moveLog != null) {
+            if (!stopped) {
+                // An unclosed log is still read up to its last complete move.
+                Logging.logError("Servers still running, leaving the move log open");
+            } else {
+                try {
+                    Logging.logService("Recorded " + moveLog.size() + " moves");
+                    moveLog.close();
+                } catch (IOException ex) {
+                    Logging.logError("Failed to close move log: " + ex.getMessage());
+                }
+            }
+        }
     }
 
-    private static class Decay implements Runnable {
-        private final Map<String, Float> pheromoneMap;
-        private Lock mapLock;
-
-        private CountDownLatch latch;
-
-        public Decay(Map<String, Float> pheromoneMap, Lock mapLock, CountDownLatch latch) {
-            this.pheromoneMap = pheromoneMap;
-            this.mapLock = mapLock;
-            this.latch = latch;
+    /**
+     * Stops the servers agents report their moves to.
+     *
+     * @return  True if both have stopped handling requests.
+     */
+    private static boolean stopServers(Server server, FramedServer framedServer) {
+        boolean stopped = true;
+        if (framedServer != null) {
+            try {
+                framedServer.close();
+            } catch (IOException ex) {
+                Logging.logError("Failed to close framed server: " + ex.getMessage());
+            }
+            stopped = framedServer.isStopped();
         }
-        @Override
-        public void run() {
-            while (true) {
-                if (latch.getCount() == 0) {
-                    return;
-                }
-                try {
-                    Thread.sleep(100);
-                    mapLock.tryLock(1, TimeUnit.SECONDS);
-                    for (Map.Entry<String, Float> entry : pheromoneMap.entrySet()) {
-                        entry.setValue(entry.getValue() * Constants.DECAY);
-                    }
-                } catch (InterruptedException ex) {
-                    Logging.logError("Failed to acquire lock.");
-                } finally {
-                    mapLock.unlock();
+        if (server != null) {
+            try {
+                if (!server.shutdown().awaitTermination(5, TimeUnit.SECONDS)) {
+                    server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
                 }
+            } catch (InterruptedException ex) {
+                server.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            stopped &= server.isTerminated();
+        }
+        return stopped;
+    }
+
+    /**
+     * Removes the first link of a route whose loss leaves the terminals
+     * connected.
+     *
+     * @return  Whether a link was removed.
+     */
+    static boolean failLink(TopologyMutator mutator, int[] route) {
+        RawGraph graph = mutator.getGraph();
+        for (int k = 0; k + 1 < route.length; k++) {
+            if (graph.withoutEdge(route[k], route[k + 1]).distance(graph.getSource(), graph.getDest()) >= 0) {
+                Logging.logService("Failing link " + edgeLabel(route[k], route[k + 1]));
+                mutator.removeEdge(route[k], route[k + 1]);
+                return true;
             }
         }
+        return false;
     }
 
-    static class AgentLoggerImpl extends LogGrpc.LogImplBase {
-        private Graph graphVis;
-        private RawGraph graph;
-        private SpriteManager manager;
+    static class AgentLoggerImpl extends LogGrpc.LogImplBase implements StepHandler {
+        private volatile RawGraph graph;
+        private PheromoneStore pheromones;
+        private Visualizer visualizer;
+        private SnapshotExporter exporter;
 
-        private Lock mapLock;
+        private Metrics metrics;
+        private ConvergenceMonitor monitor;
+        private MoveLog moveLog;
+        private final LatencyHistogram sendLogLatency;
+        private final LatencyHistogram saveGraphLatency;
+        private final LatencyHistogram getNeighborsLatency;
+        private final LatencyHistogram stepLatency;
+        private final LatencyHistogram batchStepLatency;
+        private final LatencyHistogram reportLatency;
+        private final LatencyHistogram framedStepLatency;
 
-        private Lock lock;
-        public AgentLoggerImpl(RawGraph graph, Graph graphVis, SpriteManager manager, Lock mapLock) {
+        /**
+         * @param moveLog   Log every move is recorded to, or null to not record.
+         */
+        public AgentLoggerImpl(RawGraph graph, PheromoneStore pheromones, Visualizer visualizer,
+                               SnapshotExporter exporter, Metrics metrics, ConvergenceMonitor monitor,
+                               MoveLog moveLog) {
             this.graph = graph;
-            this.graphVis = graphVis;
-            this.manager = manager;
-            lock = new ReentrantLock();
-            this.mapLock = mapLock;
+            this.pheromones = pheromones;
+            this.visualizer = visualizer;
+            this.exporter = exporter;
+            this.metrics = metrics;
+            this.monitor = monitor;
+            this.moveLog = moveLog;
+            sendLogLatency = metrics.latency("SendLog");
+            saveGraphLatency = metrics.latency("SaveGraph");
+            getNeighborsLatency = metrics.latency("GetNeighbors");
+            // Per message of the stream, from receiving a step to sending its reply.
+            stepLatency = metrics.latency("Step");
+            batchStepLatency = metrics.latency("BatchStep");
+            // Per message of the stream.
+            reportLatency = metrics.latency("Report");
+            // Per request of the framed transport.
+            framedStepLatency = metrics.latency("FramedStep");
+        }
+
+        /**
+         * Switches to a changed graph. Calls in progress finish on the old one.
+         */
+        void topologyChanged(RawGraph graph) {
+            this.graph = graph;
+        }
+
+        private boolean applyLog(MessageLog req) {
+            return applyMove(req.getAntId(), req.getPrevVertex(), req.getNextVertex(), req.getModifier());
+        }
+
+        /**
+         * Records a move, deposits pheromone for it and hands it to the
+         * visualizer, which draws it later on its own thread.
+         *
+         * @return      False if the move did not follow an edge of the graph.
+         */
+        private boolean applyMove(int antId, int prevVertex, int nextVertex, float modifier) {
+            int edge = graph.edgeId(prevVertex, nextVertex);
+            if (edge < 0) {
+                Logging.logError("Ant " + antId + " moved along missing edge " + edgeLabel(prevVertex, nextVertex));
+                return false;
+            }
+            // The log records the tick the deposit is made at.
+            int tick = pheromones.currentTick();
+            if (moveLog != null) {
+                moveLog.append(tick, antId, prevVertex, nextVertex, edge, modifier);
+            }
+            pheromones.deposit(edge, Constants.INCREMENT * modifier, tick);
+            visualizer.moved(antId, edge);
+            monitor.onDeposit(edge);
+            metrics.step();
+            return true;
+        }
+
+        private void saveGraph(int iteration) {
+            exporter.request(iteration);
+        }
+
+        /**
+         * Lists the edges an ant on a vertex may take next, along with their
+         * pheromone levels. The edge back to the previous vertex is left out
+         * unless the vertex is a dead end or one of the terminals. Once the
+         * colony has converged, the reply also tells the ant to stop.
+         *
+         * @param req   The vertex of the ant and the vertex it came from.
+         * @return      The candidate edges.
+         */
+        private NeighborsReply neighbors(NeighborsRequest req) {
+            RawGraph graph = this.graph;
+            int node = req.getNodeId();
+            boolean skipPrevious = !graph.allowsBacktrack(node);
+            NeighborsReply.Builder reply = NeighborsReply.newBuilder().setStop(monitor.isConverged());
+            for (int i = graph.neighborsStart(node); i < graph.neighborsEnd(node); i++) {
+                int neighbor = graph.neighborAt(i);
+                if (skipPrevious && neighbor == req.getPrevNode()) continue;
+                reply.addEdges(Edge.newBuilder().setNodeId(neighbor).setPheromoneLevel(
+                        pheromones.get(graph.edgeIdAt(i))));
+            }
+            return reply.build();
         }
 
+        /**
+         * Serves a step of the framed transport, the same way as a message of
+         * the Step stream.
+         */
         @Override
-        public void sendLog(MessageLog req, StreamObserver<StatusReply> responseObserver) {
-            Sprite sprite = manager.getSprite(antNameForId(req.getAntId()));
-            String label = edgeLabel(String.valueOf(req.getPrevVertex()), String.valueOf(req.getNextVertex()));
+        public void step(int antId, int previousVertex, int currentVertex, float modifier, int saveIteration,
+                         Candidates out) {
+            long start = System.nanoTime();
+            if (previousVertex >= 0) {
+                applyMove(antId, previousVertex, currentVertex, modifier);
+            }
+            if (saveIteration != 0) {
+                saveGraph(saveIteration);
+            }
+            out.clear();
+            out.setStop(monitor.isConverged());
+            RawGraph graph = this.graph;
+            boolean skipPrevious = !graph.allowsBacktrack(currentVertex);
+            for (int i = graph.neighborsStart(currentVertex); i < graph.neighborsEnd(currentVertex); i++) {
+                int neighbor = graph.neighborAt(i);
+                if (skipPrevious && neighbor == previousVertex) continue;
+                out.add(neighbor, pheromones.get(graph.edgeIdAt(i)));
+            }
+            framedStepLatency.recordSince(start);
+        }
 
-            // Set color based on pheremone level
-            try {
-                lock.tryLock(1, TimeUnit.SECONDS);
-                mapLock.tryLock(1, TimeUnit.SECONDS);
-                float increment = Constants.INCREMENT * req.getModifier();
-                float pheromoneValue = pheromoneMap.computeIfPresent(
-                        label, (k, v) -> (v <= 1 - increment) ? v + increment : v);
-                /**
-                 * Scale the pheromone value
-                 */
-                double visValue = Math.log(pheromoneValue*(Math.exp(1)-1)+1);
-                graphVis.getEdge(label).setAttribute("ui.color", visValue);
-                if (!sprite.attached() || !sprite.getAttachment().equals(graphVis.getEdge(label))) {
-                    sprite.attachToEdge(label);
-                    sprite.setPosition(0.5);
+        @Override
+        public void batchStep(BatchStepRequest req, StreamObserver<BatchStepReply> responseObserver) {
+            long start = System.nanoTime();
+            BatchStepReply.Builder reply = BatchStepReply.newBuilder();
+            int saveIteration = 0;
+            for (StepRequest step : req.getStepsList()) {
+                if (step.hasMove()) {
+                    applyLog(step.getMove());
                 }
-            } catch (Exception ex) {
-                Logging.logService("For ant " + req.getAntId() + " on " + label + ": " + ex.getMessage());
-                ex.printStackTrace();
-            } finally {
-                lock.unlock();
-                mapLock.unlock();
+                saveIteration = Math.max(saveIteration, step.getSaveIteration());
+                reply.addReplies(neighbors(step.getPosition()));
             }
-            responseObserver.onNext(StatusReply.newBuilder().setSuccess(true).build());
+            // All ants of a host reach the same iteration together; ask once.
+            if (saveIteration != 0) {
+                saveGraph(saveIteration);
+            }
+            responseObserver.onNext(reply.build());
             responseObserver.onCompleted();
+            batchStepLatency.recordSince(start);
+        }
+
+        @Override
+        public void sendLog(MessageLog req, StreamObserver<StatusReply> responseObserver) {
+            long start = System.nanoTime();
+            boolean success = applyLog(req);
+            responseObserver.onNext(StatusReply.newBuilder().setSuccess(success).build());
+            responseObserver.onCompleted();
+            sendLogLatency.recordSince(start);
         }
 
         @Override
         public void saveGraph(SaveGraphRequest req, StreamObserver<StatusReply> responseObserver) {
-            /*FileSinkImages pic = new FileSinkImages(FileSinkImages.OutputType.png, FileSinkImages.Resolutions.HD720);
-            pic.setLayoutPolicy(FileSinkImages.LayoutPolicy.COMPUTED_FULLY_AT_NEW_IMAGE);
-            pic.setQuality(FileSinkImages.Quality.HIGH);
-            try {
-                pic.writeAll(graphVis, String.format("graph_frame_%d.png", req.getIteration()));
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }*/
-            graphVis.setAttribute("ui.screenshot", String.format("good_graph_frame_%d.png", req.getIteration()));
+            long start = System.nanoTime();
+            saveGraph(req.getIteration());
             responseObserver.onNext(StatusReply.newBuilder().setSuccess(true).build());
             responseObserver.onCompleted();
+            saveGraphLatency.recordSince(start);
         }
 
         @Override
         public void getNeighbors(NeighborsRequest req, StreamObserver<NeighborsReply> responseObserver) {
-            Set<Integer> neighbors = new HashSet<>(graph.neighborsOf(req.getNodeId()));
-            if (neighbors.size() != 1 && req.getNodeId() != graph.getDest() && req.getNodeId() != graph.getSource()) {
-                neighbors.remove(req.getPrevNode());
-            }
-            List<Edge> edges = neighbors.stream().map(
-                    id -> Edge.newBuilder().setNodeId(id).setPheromoneLevel(
-                            pheromoneMap.get(edgeLabel(req.getNodeId(), id))
-                    ).build()).toList();
-            responseObserver.onNext(NeighborsReply.newBuilder()
-                    .addAllEdges(edges).build());
+            long start = System.nanoTime();
+            responseObserver.onNext(neighbors(req));
+            responseObserver.onCompleted();
+            getNeighborsLatency.recordSince(start);
+        }
+
+        @Override
+        public void stats(StatsRequest req, StreamObserver<StatsReply> responseObserver) {
+            StatsReply.Builder reply = StatsReply.newBuilder()
+                    .setUptimeSeconds(metrics.getUptimeSeconds())
+                    .setSteps(metrics.getSteps())
+                    .setStepsPerSecond(metrics.getStepsPerSecond())
+                    .putAllGauges(metrics.getGauges());
+            metrics.getLatencies().forEach((rpc, histogram) -> {
+                RpcStats.Builder stats = RpcStats.newBuilder()
+                        .setName(rpc)
+                        .setCount(histogram.count())
+                        .setMeanMicros(histogram.meanNanos() / 1e3)
+                        .setP50Micros(histogram.percentileNanos(0.5) / 1e3)
+                        .setP99Micros(histogram.percentileNanos(0.99) / 1e3)
+                        .setMaxMicros(histogram.maxNanos() / 1e3);
+                for (long bucket : histogram.buckets()) {
+                    stats.addBuckets(bucket);
+                }
+                reply.addRpcs(stats);
+            });
+            responseObserver.onNext(reply.build());
             responseObserver.onCompleted();
         }
+
+        @Override
+        public StreamObserver<MessageLog> report(StreamObserver<StatusReply> responseObserver) {
+            return new StreamObserver<>() {
+                private boolean success = true;
+
+                @Override
+                public void onNext(MessageLog req) {
+                    long start = System.nanoTime();
+                    success &= applyLog(req);
+                    reportLatency.recordSince(start);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    Logging.logError("Report stream failed: " + t.getMessage());
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onNext(StatusReply.newBuilder().setSuccess(success).build());
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<StepRequest> step(StreamObserver<NeighborsReply> responseObserver) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(StepRequest req) {
+                    long start = System.nanoTime();
+                    if (req.hasMove()) {
+                        applyLog(req.getMove());
+                    }
+                    if (req.getSaveIteration() != 0) {
+                        saveGraph(req.getSaveIteration());
+                    }
+                    responseObserver.onNext(neighbors(req.getPosition()));
+                    stepLatency.recordSince(start);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    Logging.logError("Step stream failed: " + t.getMessage());
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
     }
 }
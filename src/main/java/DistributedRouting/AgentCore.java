@@ -1,14 +1,12 @@
 package DistributedRouting;
 
 import DistributedRouting.grpc.Edge;
+import DistributedRouting.objects.RawGraph;
 import DistributedRouting.util.Constants;
-import org.apache.commons.math3.distribution.EnumeratedDistribution;
-import org.apache.commons.math3.util.Pair;
+import DistributedRouting.util.SplitMix64;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 public class AgentCore {
 
@@ -21,44 +19,181 @@ public class AgentCore {
     private int lastSeenSource;
     private float modifier;
 
+    // Vertex the ant started from, where its route to the destination begins.
+    private final int source;
     private int destination;
 
-    private static final int delta = 15;
+    private final SplitMix64 random;
+
+    // Reused when traversing from a list of Edge messages.
+    private int[] nodes = new int[0];
+    private float[] levels = new float[0];
+    // Running sums of the candidate weights, reused across steps.
+    private double[] cumulative = new double[0];
+
+    /**
+     * Ants reaching their destination within this many steps of last being on
+     * the source deposit twice as much, fading over the steps that follow.
+     */
+    public static final int DEFAULT_DELTA = 15;
+
+    private final int delta;
+
+    /**
+     * Samples a candidate with probability proportional to its pheromone
+     * level, by binary search over the running sums of the levels. Only
+     * allocates when a vertex has a larger degree than any seen before.
+     *
+     * @param levels    Pheromone level of each candidate.
+     * @param count     Number of candidates.
+     * @return          Index of the sampled candidate.
+     */
+    private int pickUsingPheromones(float[] levels, int count) {
+        if (cumulative.length < count) {
+            cumulative = new double[Math.max(count, 2 * cumulative.length)];
+        }
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += levels[i];
+            cumulative[i] = total;
+        }
+        // Every level has evaporated to nothing; all moves are equally good.
+        if (!(total > 0)) {
+            return random.nextInt(count);
+        }
 
-    private Edge pickUsingPheromones(List<Edge> edges) {
-        List<Pair<Edge, Double>> weightsList = IntStream.range(0, edges.size())
-                .mapToObj(i -> new Pair<Edge, Double>(edges.get(i), (double) edges.get(i).getPheromoneLevel()))
-                .collect(Collectors.toList());
-        return new EnumeratedDistribution<>(weightsList).sample();
+        double target = random.nextDouble() * total;
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
     }
 
     public AgentCore(int id, int startingVertex, int destination) {
+        this(id, startingVertex, destination, new SplitMix64());
+    }
+
+    public AgentCore(int id, int startingVertex, int destination, long seed) {
+        this(id, startingVertex, destination, new SplitMix64(seed));
+    }
+
+    public AgentCore(int id, int startingVertex, int destination, SplitMix64 random) {
+        this(id, startingVertex, destination, random, DEFAULT_DELTA);
+    }
+
+    public AgentCore(int id, int startingVertex, int destination, SplitMix64 random, int delta) {
         this.id = id;
         this.currentVertex = startingVertex;
         this.previousVertex = -1;
+        this.source = startingVertex;
         this.destination = destination;
         this.modifier = 1;
-        this.lastSeenSource = (startingVertex == 1) ? 1 : delta + 1;
+        // The ant is on its source at the first step.
+        this.lastSeenSource = 1;
         this.timestep = 1;
+        this.random = random;
+        this.delta = delta;
+    }
+
+    /**
+     * Recreates an agent from the state of one that was moved elsewhere.
+     */
+    AgentCore(int id, int currentVertex, int previousVertex, int source, int destination, int timestep,
+              int lastSeenSource, float modifier, SplitMix64 random, int delta) {
+        this.id = id;
+        this.currentVertex = currentVertex;
+        this.previousVertex = previousVertex;
+        this.source = source;
+        this.destination = destination;
+        this.timestep = timestep;
+        this.lastSeenSource = lastSeenSource;
+        this.modifier = modifier;
+        this.random = random;
+        this.delta = delta;
+    }
+
+    /**
+     * Creates the agents of a run. The first half of the ants start on the
+     * source and head for the destination, the rest go the other way. Each
+     * agent gets its own generator split from one seeded with the run seed, so
+     * every execution mode given the same seed makes the same choices.
+     *
+     * @param graph     Graph the ants walk on.
+     * @param numAnts   Number of ants.
+     * @param seed      Seed of the run.
+     * @return          The agents, indexed by ant id.
+     */
+    public static List<AgentCore> createColony(RawGraph graph, int numAnts, long seed) {
+        return createColony(graph, numAnts, seed, DEFAULT_DELTA);
+    }
+
+    /**
+     * Creates the agents of a run with a non-default delta.
+     *
+     * @see #createColony(RawGraph, int, long)
+     */
+    public static List<AgentCore> createColony(RawGraph graph, int numAnts, long seed, int delta) {
+        SplitMix64 seeds = new SplitMix64(seed);
+        List<AgentCore> colony = new ArrayList<>(numAnts);
+        for (int i = 0; i < numAnts; i++) {
+            boolean reversed = i > numAnts/2;
+            colony.add(new AgentCore(i,
+                    reversed ? graph.getDest() : graph.getSource(),
+                    reversed ? graph.getSource() : graph.getDest(),
+                    seeds.split(), delta));
+        }
+        return colony;
     }
 
     public Edge traverse(List<Edge> edges) {
+        if (nodes.length < edges.size()) {
+            nodes = new int[edges.size()];
+            levels = new float[edges.size()];
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            nodes[i] = edges.get(i).getNodeId();
+            levels[i] = edges.get(i).getPheromoneLevel();
+        }
+        return edges.get(traverse(nodes, levels, edges.size()));
+    }
+
+    /**
+     * Moves the agent to one of the candidate vertices, picked with
+     * probability proportional to the pheromone level of its edge.
+     *
+     * @param nodes     Candidate vertices.
+     * @param levels    Pheromone level of the edge to each candidate.
+     * @param count     Number of candidates, the prefix of the arrays to use.
+     * @return          Index of the chosen candidate.
+     */
+    public int traverse(int[] nodes, float[] levels, int count) {
         timestep++;
         if (modifier > 1) {
             modifier -= 0.2;
         }
-        Edge edge = pickUsingPheromones(edges);
+        int choice = pickUsingPheromones(levels, count);
         previousVertex = currentVertex;
-        currentVertex = edge.getNodeId();
+        currentVertex = nodes[choice];
 
         if (currentVertex == destination && timestep - lastSeenSource < delta) {
             modifier = 2;
-        } else if (currentVertex == 1) {
+        } else if (currentVertex == source) {
             lastSeenSource = timestep;
             modifier = 1;
         }
 
-        return edge;
+        return choice;
+    }
+
+    public int getId() {
+        return id;
     }
 
     public float getModifier() {
@@ -72,4 +207,39 @@ public class AgentCore {
     public int getCurrentVertex() {
         return currentVertex;
     }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getDestination() {
+        return destination;
+    }
+
+    int getTimestep() {
+        return timestep;
+    }
+
+    int getLastSeenSource() {
+        return lastSeenSource;
+    }
+
+    int getDelta() {
+        return delta;
+    }
+
+    /**
+     * The agent's generator, whose state is saved in checkpoints.
+     */
+    SplitMix64 getRandom() {
+        return random;
+    }
+
+    /**
+     * Draws a seed from the agent's generator, for seeding the generator of a
+     * copy of the agent that continues elsewhere.
+     */
+    long nextSeed() {
+        return random.nextLong();
+    }
 }
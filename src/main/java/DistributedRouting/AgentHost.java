@@ -0,0 +1,103 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.*;
+import DistributedRouting.util.LatencyHistogram;
+import DistributedRouting.util.Logging;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.util.TickScheduler;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Drives many agents from a single thread. Every tick, each agent moves along
+ * one of the edges it was last offered and all moves are sent to the
+ * controller in one BatchStep call, whose reply holds the next edges of every
+ * agent. The number of RPCs per tick no longer grows with the number of ants.
+ */
+public class AgentHost implements Runnable {
+
+    private final List<AgentCore> cores;
+    private final LogGrpc.LogBlockingStub graphStub;
+
+    private final TickScheduler scheduler;
+    private CountDownLatch countdown;
+    // Round trip of a batch as seen by the host.
+    private final LatencyHistogram batchLatency;
+
+    /**
+     * @param channels      Pool the host takes its channel from. The host
+     *                      blocks on its BatchStep calls, holding its thread
+     *                      for the round trip of every tick.
+     */
+    public AgentHost(List<AgentCore> cores, ChannelPool channels, TickScheduler scheduler, CountDownLatch countdown,
+                     Metrics metrics) {
+        Logging.logService("Starting host for " + cores.size() + " agents");
+        this.cores = cores;
+        this.scheduler = scheduler;
+        this.countdown = countdown;
+        this.batchLatency = metrics.latency("client.BatchStep");
+        this.graphStub = LogGrpc.newBlockingStub(channels.next());
+    }
+
+    /**
+     * Main loop of AgentHost, the batched equivalent of {@link AgentRunner#run()}.
+     */
+    public void run() {
+
+        int messageLimit = 2000;
+        int currMessages = 0;
+        try {
+            BatchStepRequest.Builder batch = BatchStepRequest.newBuilder();
+            for (AgentCore core : cores) {
+                batch.addSteps(StepRequest.newBuilder().setPosition(position(core)));
+            }
+            BatchStepReply replies = graphStub.batchStep(batch.build());
+            while (true) {
+                scheduler.awaitTick();
+
+                batch = BatchStepRequest.newBuilder();
+                for (int i = 0; i < cores.size(); i++) {
+                    AgentCore core = cores.get(i);
+                    StepRequest.Builder step = StepRequest.newBuilder();
+                    // An ant on an isolated vertex has nowhere to go; it only
+                    // asks for its edges again.
+                    List<Edge> edges = replies.getReplies(i).getEdgesList();
+                    if (!edges.isEmpty()) {
+                        int previousVertex = core.getCurrentVertex();
+                        core.traverse(edges);
+                        step.setMove(MessageLog.newBuilder()
+                                .setAntId(core.getId())
+                                .setPrevVertex(previousVertex)
+                                .setNextVertex(core.getCurrentVertex())
+                                .setModifier(core.getModifier()));
+                    }
+                    step.setPosition(position(core));
+                    if (currMessages != 0 && currMessages % 100 == 0) {
+                        step.setSaveIteration(currMessages);
+                    }
+                    batch.addSteps(step);
+                }
+                long start = System.nanoTime();
+                replies = graphStub.batchStep(batch.build());
+                batchLatency.recordSince(start);
+                // Every reply of a batch carries the same stop flag.
+                if (replies.getRepliesCount() > 0 && replies.getReplies(0).getStop()) {
+                    Logging.logService("Host stopping, the colony has converged");
+                    break;
+                }
+
+                if (currMessages++ == messageLimit) break;
+            }
+        } catch (Exception ex) {
+            Logging.logError("Encountered error in agent host in main loop: " + ex.getMessage());
+        }
+        countdown.countDown();
+    }
+
+    private static NeighborsRequest position(AgentCore core) {
+        return NeighborsRequest.newBuilder()
+                .setNodeId(core.getCurrentVertex())
+                .setPrevNode(core.getPreviousVertex()).build();
+    }
+}
@@ -1,9 +1,12 @@
 package DistributedRouting;
 
-import DistributedRouting.grpc.*;
-import DistributedRouting.util.Constants;
+import DistributedRouting.grpc.LogGrpc;
+import DistributedRouting.network.Candidates;
+import DistributedRouting.network.StepTransport;
+import DistributedRouting.util.LatencyHistogram;
 import DistributedRouting.util.Logging;
-import io.grpc.*;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.util.TickScheduler;
 
 import java.util.concurrent.CountDownLatch;
 
@@ -14,57 +17,71 @@ import java.util.concurrent.CountDownLatch;
 public class AgentRunner implements Runnable {
 
     private AgentCore core;
-    private LogGrpc.LogBlockingStub graphStub;
-    private final int port;
+    private final StepTransport transport;
     private final int id;
 
+    private final TickScheduler scheduler;
     private CountDownLatch countdown;
+    // Round trip of a step as seen by the agent.
+    private final LatencyHistogram stepLatency;
 
-    public AgentRunner(Integer id, Integer startingVertex, Integer destination, CountDownLatch countdown) {
-        Logging.logService("Starting agent " + id);
-        this.core = new AgentCore(id, startingVertex, destination);
-        this.port = Constants.MESSAGE_PORT + id;
-        this.id = id;
-        this.countdown = countdown;
-
-        // Connect to logger
-        String target = String.format("localhost:%d", Constants.MESSAGE_PORT);
-        ManagedChannel channel = Grpc.newChannelBuilder(target, InsecureChannelCredentials.create())
-                .build();
-        graphStub = LogGrpc.newBlockingStub(channel);
+    /**
+     * Steps over the gRPC Step stream, on the next channel of a shared pool.
+     */
+    public AgentRunner(AgentCore core, ChannelPool channels, TickScheduler scheduler, CountDownLatch countdown,
+                       Metrics metrics) {
+        this(core, new GrpcStepTransport(LogGrpc.newStub(channels.next())), scheduler, countdown, metrics);
+    }
 
+    /**
+     * @param transport     Carries the agent's steps; closed once the agent is done.
+     */
+    public AgentRunner(AgentCore core, StepTransport transport, TickScheduler scheduler, CountDownLatch countdown,
+                       Metrics metrics) {
+        Logging.logService("Starting agent " + core.getId());
+        this.core = core;
+        this.transport = transport;
+        this.id = core.getId();
+        this.scheduler = scheduler;
+        this.countdown = countdown;
+        this.stepLatency = metrics.latency("client.Step");
     }
 
     /**
-     * Main loop of AgentRunner. This method regularly checks if a message has been
-     * received and, if it has, sends off another message to all of its neighbors
-     * except the one from which the message was received.
+     * Main loop of AgentRunner. Every iteration the agent moves along one of the
+     * edges it was last offered, then reports the move and gets back the edges
+     * leaving its new position in the same round trip.
      */
     public void run() {
 
         int messageLimit = 2000;
         int currMessages = 0;
-        try {
+        Candidates candidates = new Candidates();
+        try (transport) {
+            transport.step(id, core.getPreviousVertex(), core.getCurrentVertex(), core.getModifier(), 0,
+                    candidates);
             while (true) {
                 if (id == 1) {
                     Logging.logService("Iteration: " + currMessages);
                 }
-                Thread.sleep(50);
+                scheduler.awaitTick();
 
-                int previousVertex = core.getCurrentVertex();
-                NeighborsReply reply = graphStub.getNeighbors(NeighborsRequest.newBuilder()
-                        .setPrevNode(core.getPreviousVertex())
-                        .setNodeId(previousVertex).build());
-                core.traverse(reply.getEdgesList());
-
-                graphStub.sendLog(MessageLog.newBuilder()
-                                .setAntId(id)
-                                .setPrevVertex(previousVertex)
-                                .setNextVertex(core.getCurrentVertex())
-                                .setModifier(Float.valueOf(core.getModifier())).build());
+                // An ant on an isolated vertex has nowhere to go; it stays and
+                // only asks for its edges again, as a step without a move.
+                int previousVertex = -1;
+                if (candidates.count() > 0) {
+                    previousVertex = core.getCurrentVertex();
+                    core.traverse(candidates.nodes(), candidates.levels(), candidates.count());
+                }
 
-                if (currMessages != 0 && currMessages % 100 == 0) {
-                    graphStub.saveGraph(SaveGraphRequest.newBuilder().setIteration(currMessages).build());
+                int saveIteration = (currMessages != 0 && currMessages % 100 == 0) ? currMessages : 0;
+                long start = System.nanoTime();
+                transport.step(id, previousVertex, core.getCurrentVertex(), core.getModifier(), saveIteration,
+                        candidates);
+                stepLatency.recordSince(start);
+                if (candidates.isStop()) {
+                    Logging.logService("Agent " + id + " stopping, the colony has converged");
+                    break;
                 }
 
                 if (currMessages++ == messageLimit) break;
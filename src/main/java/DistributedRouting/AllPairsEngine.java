@@ -0,0 +1,264 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.DestinationTable;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+import DistributedRouting.util.Logging;
+import DistributedRouting.util.SplitMix64;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a colony routing between every pair of vertices at once, in-process
+ * like {@link SimulationEngine}. Every ant has its own source and destination
+ * and follows, and deposits on, the pheromone of its destination only, so the
+ * colony learns a route to each destination from everywhere, as in AntNet.
+ * The levels are kept in one {@link DestinationTable}.
+ */
+public class AllPairsEngine {
+
+    private final RawGraph graph;
+    private final DestinationTable table;
+    private final List<AgentCore> agents;
+    // Row of the destination of each agent, indexed like agents.
+    private final int[] rows;
+
+    // Ticks per decay step, as in SimulationEngine.
+    private final int decayInterval;
+    // Pheromone deposited by a move with modifier 1.
+    private final float increment;
+
+    private final CandidateBuffer candidates;
+
+    private long tick = 0;
+    private long steps = 0;
+    private long arrivals = 0;
+
+    public AllPairsEngine(RawGraph graph, int antsPerDestination, long seed) {
+        this(graph, createColony(graph, antsPerDestination, seed, AgentCore.DEFAULT_DELTA), 2,
+                Constants.INCREMENT, Constants.DECAY);
+    }
+
+    /**
+     * @param graph         Graph the colony walks on.
+     * @param agents        Colony, stepped in list order. Every distinct
+     *                      destination gets a row of the table.
+     * @param decayInterval Ticks per decay step.
+     * @param increment     Pheromone deposited by a move with modifier 1,
+     *                      and the level every entry starts at.
+     * @param decay         Factor levels are scaled by every decay step.
+     */
+    public AllPairsEngine(RawGraph graph, List<AgentCore> agents, int decayInterval, float increment,
+                          float decay) {
+        this.graph = graph;
+        this.agents = agents;
+        this.decayInterval = decayInterval;
+        this.increment = increment;
+
+        int[] destinations = new int[agents.size()];
+        int numDestinations = 0;
+        BitSet seen = new BitSet();
+        for (AgentCore agent : agents) {
+            if (!seen.get(agent.getDestination())) {
+                seen.set(agent.getDestination());
+                destinations[numDestinations++] = agent.getDestination();
+            }
+        }
+        this.table = new DestinationTable(graph.numEdges(), Arrays.copyOf(destinations, numDestinations),
+                increment, decay);
+        this.rows = new int[agents.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = table.row(agents.get(i).getDestination());
+        }
+        this.candidates = CandidateBuffer.forGraph(graph);
+    }
+
+    /**
+     * Creates a colony routing to every vertex that has an edge. Each of
+     * those vertices is the destination of the same number of ants, which
+     * start on other such vertices drawn at random. As in
+     * {@link AgentCore#createColony}, every agent gets its own generator
+     * split from one seeded with the run seed.
+     *
+     * @param graph                 Graph the ants walk on.
+     * @param antsPerDestination    Number of ants heading for each vertex.
+     * @param seed                  Seed of the run.
+     * @param delta                 Delta of every agent.
+     * @return                      The agents, indexed by ant id.
+     */
+    public static List<AgentCore> createColony(RawGraph graph, int antsPerDestination, long seed, int delta) {
+        int[] vertices = graph.getVertices();
+        int[] connected = new int[vertices.length];
+        int count = 0;
+        for (int vertex : vertices) {
+            if (graph.degree(vertex) > 0) {
+                connected[count++] = vertex;
+            }
+        }
+        SplitMix64 seeds = new SplitMix64(seed);
+        List<AgentCore> colony = new ArrayList<>(count * antsPerDestination);
+        if (count < 2) {
+            return colony;
+        }
+        for (int d = 0; d < count; d++) {
+            for (int i = 0; i < antsPerDestination; i++) {
+                // Any connected vertex but the destination itself.
+                int s = seeds.nextInt(count - 1);
+                int source = connected[(s < d) ? s : s + 1];
+                colony.add(new AgentCore(colony.size(), source, connected[d], seeds.split(), delta));
+            }
+        }
+        return colony;
+    }
+
+    /**
+     * Moves every ant once. Levels decay once every decayInterval ticks.
+     */
+    public void tick() {
+        for (int i = 0; i < agents.size(); i++) {
+            step(agents.get(i), rows[i]);
+        }
+        tick++;
+        if (tick % decayInterval == 0) {
+            table.decay();
+        }
+    }
+
+    private void step(AgentCore agent, int row) {
+        int count = candidates.collect(graph, table, row, agent);
+        // An ant on an isolated vertex has nowhere to go.
+        if (count == 0) {
+            return;
+        }
+        int choice = agent.traverse(candidates.nodes, candidates.levels, count);
+        table.deposit(row, candidates.edges[choice], increment * agent.getModifier());
+        steps++;
+        if (agent.getCurrentVertex() == agent.getDestination()) {
+            arrivals++;
+        }
+    }
+
+    /**
+     * Runs a number of ticks. Levels differ per destination, so the result
+     * holds none; they are read from {@link #getTable()}.
+     *
+     * @param ticks     Number of ticks to run.
+     * @return          The totals of this engine since it was created.
+     */
+    public SimulationResult run(long ticks) {
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            tick();
+        }
+        return new SimulationResult(tick, steps, arrivals, System.nanoTime() - start, new float[0]);
+    }
+
+    /**
+     * The dominant route between two vertices: starting at the source, always
+     * follow the destination's strongest edge to a vertex not yet on the
+     * route, as {@link ConvergenceMonitor} does for a single pair.
+     *
+     * @param source        Vertex to start from.
+     * @param destination   Vertex to route to.
+     * @return              The vertices of the route, ending on the destination
+     *                      if it was reached, or null if the destination has
+     *                      no row.
+     */
+    public int[] route(int source, int destination) {
+        int row = table.row(destination);
+        if (row < 0) {
+            return null;
+        }
+        BitSet visited = new BitSet();
+        int[] vertices = new int[16];
+        int length = 0;
+        int vertex = source;
+        vertices[length++] = vertex;
+        visited.set(vertex);
+        while (vertex != destination) {
+            int next = -1;
+            float best = -1;
+            for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+                int neighbor = graph.neighborAt(i);
+                float level = table.get(row, graph.edgeIdAt(i));
+                if (!visited.get(neighbor) && level > best) {
+                    best = level;
+                    next = neighbor;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            if (length == vertices.length) {
+                vertices = Arrays.copyOf(vertices, 2 * length);
+            }
+            vertices[length++] = next;
+            visited.set(next);
+            vertex = next;
+        }
+        return Arrays.copyOf(vertices, length);
+    }
+
+    public RawGraph getGraph() {
+        return graph;
+    }
+
+    public DestinationTable getTable() {
+        return table;
+    }
+
+    List<AgentCore> getAgents() {
+        return agents;
+    }
+
+    long getTick() {
+        return tick;
+    }
+
+    /**
+     * Routes between every pair of vertices of a random graph, then reports
+     * how many of the pairs the colony found a route for and how much longer
+     * than a shortest path those routes are on average.
+     *
+     * @param args  seed, and optionally the number of vertices, ants per
+     *              destination and ticks.
+     */
+    public static void main(String[] args) {
+        long seed = Long.parseLong(args[0]);
+        int numVertices = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        int antsPerDestination = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        long ticks = (args.length > 3) ? Long.parseLong(args[3]) : 2001;
+
+        RawGraph graph = SampleGraphs.erdosReyniGraph(numVertices, 0.2f, new Random(seed)).asUndirectedGraph();
+        AllPairsEngine engine = new AllPairsEngine(graph, antsPerDestination, seed);
+        Logging.logService(engine.run(ticks).toString());
+
+        DestinationTable table = engine.getTable();
+        int pairs = 0;
+        int found = 0;
+        double stretch = 0;
+        for (int s = 0; s < table.numDestinations(); s++) {
+            for (int d = 0; d < table.numDestinations(); d++) {
+                int source = table.getDestination(s);
+                int destination = table.getDestination(d);
+                int distance = graph.distance(source, destination);
+                if (source == destination || distance < 0) continue;
+                pairs++;
+                int[] route = engine.route(source, destination);
+                if (route[route.length - 1] == destination) {
+                    found++;
+                    stretch += (route.length - 1) / (double) distance;
+                }
+            }
+        }
+        Logging.logService(String.format("Found routes for %d of %d pairs over %d destinations, "
+                        + "%.3f times as long as shortest on average (%d bytes of pheromone)",
+                found, pairs, table.numDestinations(), (found > 0) ? stretch / found : 0,
+                4L * table.numDestinations() * table.numEdges()));
+    }
+}
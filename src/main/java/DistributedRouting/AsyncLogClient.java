@@ -0,0 +1,181 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.LogGrpc;
+import DistributedRouting.grpc.MessageLog;
+import DistributedRouting.grpc.SaveGraphRequest;
+import DistributedRouting.grpc.StatusReply;
+import DistributedRouting.util.Logging;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fire-and-forget calls to the Log service, shared by the agents of a
+ * process. No thread waits for a reply. Unary calls share a fixed window of
+ * calls in flight, and a snapshot request that finds the window full is
+ * dropped rather than queued, as the next one comes 100 moves later anyway.
+ * Moves go over a Report stream per agent, which waits for gRPC's flow
+ * control instead of buffering without bound. Streams and calls are spread
+ * round robin over the channels of a pool.
+ */
+public class AsyncLogClient {
+    private final ChannelPool channels;
+    private final int window;
+    private final Semaphore inFlight;
+    private final LongAdder droppedSaves = new LongAdder();
+
+    /**
+     * @param channels  Channels to the controller's Log service, owned by the caller.
+     * @param window    Most unary calls in flight at once.
+     */
+    public AsyncLogClient(ChannelPool channels, int window) {
+        this.channels = channels;
+        this.window = window;
+        this.inFlight = new Semaphore(window);
+    }
+
+    /**
+     * Asks the controller to save a snapshot, unless the window is full.
+     *
+     * @param iteration     Iteration the snapshot is named after.
+     * @return              False if the request was dropped.
+     */
+    public boolean saveGraph(int iteration) {
+        if (!inFlight.tryAcquire()) {
+            droppedSaves.increment();
+            return false;
+        }
+        LogGrpc.newStub(channels.next()).saveGraph(SaveGraphRequest.newBuilder().setIteration(iteration).build(),
+                new StreamObserver<>() {
+                    @Override
+                    public void onNext(StatusReply reply) {}
+
+                    @Override
+                    public void onError(Throwable t) {
+                        inFlight.release();
+                        Logging.logError("Failed to save graph: " + t.getMessage());
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        inFlight.release();
+                    }
+                });
+        return true;
+    }
+
+    /**
+     * Opens the Report stream of an agent.
+     */
+    public Reporter report(int antId) {
+        Reporter reporter = new Reporter(antId);
+        LogGrpc.newStub(channels.next()).report(reporter);
+        return reporter;
+    }
+
+    /**
+     * Waits until no unary call is in flight.
+     *
+     * @return  False if calls were still in flight after the timeout.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!inFlight.tryAcquire(window, timeout, unit)) {
+            return false;
+        }
+        inFlight.release(window);
+        return true;
+    }
+
+    public int getInFlight() {
+        return window - inFlight.availablePermits();
+    }
+
+    public long getDroppedSaves() {
+        return droppedSaves.sum();
+    }
+
+    /**
+     * Sending end of one agent's Report stream.
+     */
+    public static class Reporter implements ClientResponseObserver<MessageLog, StatusReply> {
+        private final int antId;
+        // Released whenever the stream may take more messages.
+        private final Semaphore ready = new Semaphore(0);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private ClientCallStreamObserver<MessageLog> requests;
+        private volatile Throwable error;
+
+        private Reporter(int antId) {
+            this.antId = antId;
+        }
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<MessageLog> requestStream) {
+            this.requests = requestStream;
+            requestStream.setOnReadyHandler(ready::release);
+        }
+
+        /**
+         * Sends a move, first waiting while the stream's send buffer is full.
+         *
+         * @throws InterruptedIOException   Thrown if interrupted while waiting.
+         * @throws IllegalStateException    Thrown if the stream failed.
+         */
+        public void send(MessageLog move) throws InterruptedIOException {
+            while (!requests.isReady()) {
+                if (error != null) {
+                    throw new IllegalStateException("Report stream failed", error);
+                }
+                try {
+                    ready.tryAcquire(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to report a move");
+                }
+            }
+            requests.onNext(move);
+        }
+
+        /**
+         * Half-closes the stream and waits for the controller to take the
+         * remaining moves.
+         *
+         * @return  False if the stream failed or did not finish in time.
+         */
+        public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+            if (error == null) {
+                requests.onCompleted();
+            }
+            return done.await(timeout, unit) && error == null;
+        }
+
+        /**
+         * Cancels the stream after the agent failed.
+         */
+        public void cancel(Throwable cause) {
+            requests.cancel("Agent " + antId + " failed", cause);
+        }
+
+        @Override
+        public void onNext(StatusReply reply) {}
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            Logging.logError("Report stream of agent " + antId + " failed: " + t.getMessage());
+            ready.release();
+            done.countDown();
+        }
+
+        @Override
+        public void onCompleted() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.DestinationTable;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+
+/**
+ * Reusable arrays holding the moves available to one ant, filled straight
+ * from the graph and pheromone store by the in-process engines. Applies the
+ * same filtering as the controller's GetNeighbors.
+ */
+class CandidateBuffer {
+    final int[] nodes;
+    final float[] levels;
+    final int[] edges;
+
+    CandidateBuffer(int maxDegree) {
+        nodes = new int[maxDegree];
+        levels = new float[maxDegree];
+        edges = new int[maxDegree];
+    }
+
+    /**
+     * Sized for the largest degree of a graph.
+     */
+    static CandidateBuffer forGraph(RawGraph graph) {
+        return new CandidateBuffer(graph.maxDegree());
+    }
+
+    /**
+     * Collects the moves of an agent.
+     *
+     * @return  Number of candidates collected.
+     */
+    int collect(RawGraph graph, PheromoneStore pheromones, AgentCore agent) {
+        int vertex = agent.getCurrentVertex();
+        boolean skipPrevious = !graph.allowsBacktrack(vertex);
+        int count = 0;
+        for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+            int neighbor = graph.neighborAt(i);
+            if (skipPrevious && neighbor == agent.getPreviousVertex()) continue;
+            nodes[count] = neighbor;
+            edges[count] = graph.edgeIdAt(i);
+            levels[count++] = pheromones.get(graph.edgeIdAt(i));
+        }
+        return count;
+    }
+
+    /**
+     * Collects the moves of an agent, with the levels of the row of its
+     * destination. Ants of a multi-destination colony each have their own
+     * terminals, so they may turn back on their own source and destination
+     * rather than on the graph's.
+     *
+     * @return  Number of candidates collected.
+     */
+    int collect(RawGraph graph, DestinationTable table, int row, AgentCore agent) {
+        int vertex = agent.getCurrentVertex();
+        boolean skipPrevious = graph.degree(vertex) != 1
+                && vertex != agent.getSource() && vertex != agent.getDestination();
+        int count = 0;
+        for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+            int neighbor = graph.neighborAt(i);
+            if (skipPrevious && neighbor == agent.getPreviousVertex()) continue;
+            nodes[count] = neighbor;
+            edges[count] = graph.edgeIdAt(i);
+            levels[count++] = table.get(row, graph.edgeIdAt(i));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,73 @@
+package DistributedRouting;
+
+import DistributedRouting.util.Logging;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of channels to one target, handed out round robin. A channel
+ * multiplexes any number of calls, so a few of them serve a whole colony and
+ * the number of sockets no longer grows with the number of ants.
+ */
+public class ChannelPool implements Closeable {
+    private final ManagedChannel[] channels;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param target    Address of the server, as host:port.
+     * @param size      Number of channels to open.
+     */
+    public ChannelPool(String target, int size) {
+        this.channels = new ManagedChannel[size];
+        for (int i = 0; i < size; i++) {
+            channels[i] = Grpc.newChannelBuilder(target, InsecureChannelCredentials.create()).build();
+        }
+    }
+
+    /**
+     * Pools channels that were built elsewhere, e.g. in-process ones.
+     */
+    ChannelPool(ManagedChannel... channels) {
+        this.channels = channels;
+    }
+
+    /**
+     * @return  The next channel of the pool. It stays owned by the pool.
+     */
+    public ManagedChannel next() {
+        return channels[Math.floorMod(next.getAndIncrement(), channels.length)];
+    }
+
+    public int size() {
+        return channels.length;
+    }
+
+    /**
+     * Shuts down every channel, letting calls in flight finish for a few
+     * seconds before they are cancelled.
+     */
+    @Override
+    public void close() {
+        for (ManagedChannel channel : channels) {
+            channel.shutdown();
+        }
+        try {
+            for (ManagedChannel channel : channels) {
+                if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+                    Logging.logError("Channel did not terminate in time, cancelling its calls");
+                    channel.shutdownNow();
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (ManagedChannel channel : channels) {
+                channel.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.GraphFile;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.SplitMix64;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary checkpoint of a {@link SimulationEngine}: the graph, the raw
+ * pheromone state of every edge and every agent down to the state of its
+ * generator. A restored engine continues exactly as the saved one would
+ * have, so a run can be paused, resumed or branched. Sections are written
+ * and read in large little-endian blocks, without any per-field encoding.
+ *
+ * <pre>
+ * header (64 bytes): magic, version, decayInterval, numAgents, numEdges,
+ *                    increment, tick, steps, arrivals, decay
+ * graph              see {@link GraphFile}
+ * pheromones[numEdges]   level bits and tick, as in {@link PheromoneStore}
+ * agents[numAgents]      id, currentVertex, previousVertex, source, destination,
+ *                        timestep, lastSeenSource, modifier, delta, seed, gamma
+ * </pre>
+ */
+public class Checkpoint {
+    private static final int MAGIC = 0x434b5054; // "CKPT"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 64;
+    private static final int AGENT_BYTES = 9 * 4 + 2 * 8;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    /**
+     * Saves an engine between two ticks. The checkpoint is written next to the
+     * file and then moved over it, so an existing checkpoint is only replaced
+     * by a complete one, and can be the one the engine was restored from.
+     *
+     * @param engine        Engine to save.
+     * @param path          File to write to, replaced if it exists.
+     * @throws IOException  Thrown if the file cannot be written.
+     */
+    public static void write(SimulationEngine engine, Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            writeTo(engine, temp);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeTo(SimulationEngine engine, Path path) throws IOException {
+        PheromoneStore pheromones = engine.getPheromones();
+        List<AgentCore> agents = engine.getAgents();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(engine.getDecayInterval()).putInt(agents.size())
+                    .putInt(pheromones.size()).putFloat(engine.getIncrement())
+                    .putLong(engine.getTick()).putLong(engine.getSteps()).putLong(engine.getArrivals())
+                    .putFloat(pheromones.getDecay());
+            header.clear();
+            writeFully(channel, header);
+
+            channel.position(HEADER_BYTES);
+            GraphFile.write(engine.getGraph(), channel);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int edge = 0; edge < pheromones.size(); ) {
+                LongBuffer view = chunk.clear().asLongBuffer();
+                int count = pheromones.saveState(edge, view);
+                edge += count;
+                chunk.limit(8 * count);
+                writeFully(channel, chunk);
+            }
+
+            ByteBuffer records = ByteBuffer.allocate(AGENT_BYTES * agents.size()).order(ByteOrder.LITTLE_ENDIAN);
+            for (AgentCore agent : agents) {
+                SplitMix64 random = agent.getRandom();
+                records.putInt(agent.getId())
+                        .putInt(agent.getCurrentVertex()).putInt(agent.getPreviousVertex())
+                        .putInt(agent.getSource()).putInt(agent.getDestination()).putInt(agent.getTimestep())
+                        .putInt(agent.getLastSeenSource()).putFloat(agent.getModifier()).putInt(agent.getDelta())
+                        .putLong(random.getSeed()).putLong(random.getGamma());
+            }
+            records.flip();
+            writeFully(channel, records);
+        }
+    }
+
+    /**
+     * Restores an engine saved by {@link #write}.
+     *
+     * @param path          File to read.
+     * @return              An engine in the state it was saved in.
+     * @throws IOException  Thrown if the file cannot be read or is not a checkpoint.
+     */
+    public static SimulationEngine restore(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a checkpoint: " + path);
+            }
+            int decayInterval = header.getInt();
+            int numAgents = header.getInt();
+            int numEdges = header.getInt();
+            float increment = header.getFloat();
+            long tick = header.getLong();
+            long steps = header.getLong();
+            long arrivals = header.getLong();
+            float decay = header.getFloat();
+
+            RawGraph graph = GraphFile.read(channel, HEADER_BYTES);
+            if (graph.numEdges() != numEdges) {
+                throw new IOException("Checkpoint graph does not match its pheromones: " + path);
+            }
+            long position = HEADER_BYTES + GraphFile.sizeOf(graph);
+            long expectedSize = position + 8L * numEdges + (long) AGENT_BYTES * numAgents;
+            if (channel.size() != expectedSize) {
+                throw new IOException("Checkpoint has the wrong size: " + path);
+            }
+
+            // Pheromones are restored once the engine's clock shows the saved tick.
+            long pheromonePosition = position;
+            position += 8L * numEdges;
+            ByteBuffer records = ByteBuffer.allocate(AGENT_BYTES * numAgents).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, records, position);
+            records.flip();
+            List<AgentCore> agents = new ArrayList<>(numAgents);
+            for (int i = 0; i < numAgents; i++) {
+                int id = records.getInt();
+                int currentVertex = records.getInt();
+                int previousVertex = records.getInt();
+                int source = records.getInt();
+                int destination = records.getInt();
+                int timestep = records.getInt();
+                int lastSeenSource = records.getInt();
+                float modifier = records.getFloat();
+                int delta = records.getInt();
+                long seed = records.getLong();
+                long gamma = records.getLong();
+                agents.add(new AgentCore(id, currentVertex, previousVertex, source, destination, timestep,
+                        lastSeenSource, modifier, new SplitMix64(seed, gamma), delta));
+            }
+
+            SimulationEngine engine = new SimulationEngine(graph, agents, decayInterval, increment, decay, tick, steps,
+                    arrivals);
+            PheromoneStore pheromones = engine.getPheromones();
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int edge = 0; edge < numEdges; ) {
+                chunk.clear().limit((int) Math.min(CHUNK_BYTES, 8L * (numEdges - edge)));
+                readFully(channel, chunk, pheromonePosition + 8L * edge);
+                chunk.flip();
+                edge += pheromones.restoreState(edge, chunk.asLongBuffer());
+            }
+            return engine;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated checkpoint");
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.LatencyHistogram;
+import DistributedRouting.util.Logging;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Decides when a colony has settled on a route. The dominant route is found
+ * greedily: starting at the source, always follow the strongest edge to a
+ * vertex not yet on the route, until reaching the destination. At every
+ * {@link #sample()} the monitor records that route, and the run counts as
+ * converged once the route has been the same for most of a sliding window
+ * of samples and carries enough of the pheromone at each of its vertices.
+ *
+ * Evaporation scales every level by the same factor, so the strongest edge
+ * at a vertex can only change when pheromone is deposited next to it. The
+ * route is therefore only recomputed after a deposit on an edge touching it.
+ * {@link #onDeposit} and {@link #topologyChanged} may be called from any
+ * thread; {@link #sample} from one thread at a time.
+ *
+ * After the graph changed, the colony counts as unconverged until the
+ * criterion holds again on the new graph, and the time that took is recorded
+ * as the re-convergence latency.
+ */
+public class ConvergenceMonitor {
+    private volatile RawGraph graph;
+    private final PheromoneStore pheromones;
+    private final double minConcentration;
+    private final double minStability;
+
+    // Hash of the dominant route at each of the last window samples.
+    private final long[] window;
+    private int samples = 0;
+
+    // Vertices of the current route, replaced whole when it is recomputed.
+    private volatile BitSet routeVertices = new BitSet();
+    private volatile boolean dirty = true;
+    private volatile boolean converged = false;
+
+    // Time of the last change of the graph not yet converged from, or 0.
+    private volatile long changedAt = 0;
+    private volatile boolean restart = false;
+    private LatencyHistogram reconvergence = new LatencyHistogram();
+
+    private int[] route = new int[0];
+    private boolean complete = false;
+    private double concentration = 0;
+    private double stability = 0;
+
+    /**
+     * @param graph             Graph the colony walks on.
+     * @param pheromones        Levels of the colony.
+     * @param windowSamples     Number of most recent samples stability is measured over.
+     * @param minConcentration  Smallest share of the pheromone around each
+     *                          vertex of the route its next edge must hold.
+     * @param minStability      Smallest fraction of the window the current
+     *                          route must have been dominant for.
+     */
+    public ConvergenceMonitor(RawGraph graph, PheromoneStore pheromones, int windowSamples,
+                              double minConcentration, double minStability) {
+        this.graph = graph;
+        this.pheromones = pheromones;
+        this.window = new long[windowSamples];
+        this.minConcentration = minConcentration;
+        this.minStability = minStability;
+    }
+
+    /**
+     * Defaults: a window of 20 samples, at least 30% of the pheromone on
+     * the route at every vertex and the same route for 90% of the window.
+     */
+    public ConvergenceMonitor(RawGraph graph, PheromoneStore pheromones) {
+        this(graph, pheromones, 20, 0.3, 0.9);
+    }
+
+    /**
+     * Records re-convergence latencies in the given histogram, e.g. one of
+     * {@link DistributedRouting.util.Metrics}. Must be called before sampling starts.
+     */
+    public ConvergenceMonitor recordReconvergence(LatencyHistogram histogram) {
+        this.reconvergence = histogram;
+        return this;
+    }
+
+    /**
+     * Switches to a changed graph and starts measuring how long the colony
+     * takes to converge on it.
+     */
+    public void topologyChanged(RawGraph graph) {
+        this.graph = graph;
+        changedAt = System.nanoTime();
+        restart = true;
+        converged = false;
+        dirty = true;
+    }
+
+    /**
+     * Tells the monitor pheromone was deposited on an edge.
+     */
+    public void onDeposit(int edgeId) {
+        if (dirty) {
+            return;
+        }
+        RawGraph graph = this.graph;
+        // A move made on the graph before a removal may name an edge that is gone.
+        if (edgeId >= graph.numEdges()) {
+            dirty = true;
+            return;
+        }
+        BitSet vertices = routeVertices;
+        if (vertices.get(graph.edgeSource(edgeId)) || vertices.get(graph.edgeTarget(edgeId))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Records the dominant route and updates the convergence criterion.
+     *
+     * @return  Whether the colony has converged. Stays true once reached.
+     */
+    public boolean sample() {
+        if (restart) {
+            // Routes sampled on the old graph no longer count.
+            restart = false;
+            samples = 0;
+            converged = false;
+        }
+        if (dirty) {
+            dirty = false;
+            recompute();
+        }
+        window[samples % window.length] = complete ? hash(route) : samples;
+        samples++;
+
+        int filled = Math.min(samples, window.length);
+        long current = window[(samples - 1) % window.length];
+        int same = 0;
+        for (int i = 0; i < filled; i++) {
+            if (window[i] == current) {
+                same++;
+            }
+        }
+        stability = complete ? same / (double) window.length : 0;
+
+        boolean windowFull = samples >= window.length;
+        if (!converged && windowFull && complete && concentration >= minConcentration
+                && stability >= minStability) {
+            converged = true;
+            Logging.logInfo(String.format("Converged after %d samples on %s (concentration %.2f)",
+                    samples, Arrays.toString(route), concentration));
+            long changed = changedAt;
+            if (changed != 0) {
+                changedAt = 0;
+                reconvergence.recordSince(changed);
+                Logging.logInfo(String.format("Re-converged %.1f ms after the graph changed",
+                        (System.nanoTime() - changed) / 1e6));
+            }
+        }
+        return converged;
+    }
+
+    private void recompute() {
+        RawGraph graph = this.graph;
+        int source = graph.getSource();
+        int dest = graph.getDest();
+        BitSet visited = new BitSet();
+        int[] vertices = new int[16];
+        int length = 0;
+        int vertex = source;
+        vertices[length++] = vertex;
+        visited.set(vertex);
+        while (vertex != dest) {
+            int next = -1;
+            float best = -1;
+            for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+                int neighbor = graph.neighborAt(i);
+                float level = pheromones.get(graph.edgeIdAt(i));
+                if (!visited.get(neighbor) && level > best) {
+                    best = level;
+                    next = neighbor;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            if (length == vertices.length) {
+                vertices = Arrays.copyOf(vertices, 2 * length);
+            }
+            vertices[length++] = next;
+            visited.set(next);
+            vertex = next;
+        }
+        route = Arrays.copyOf(vertices, length);
+        complete = vertex == dest;
+        // A deposit made while the route was being computed may go unnoticed
+        // until the next deposit near the route.
+        routeVertices = visited;
+        concentration = concentration(graph);
+    }
+
+    /**
+     * Smallest share of the pheromone leaving a vertex of the route that the
+     * route's next edge holds. The edge the route arrived by is left out, as
+     * ants do not go back along it.
+     */
+    private double concentration(RawGraph graph) {
+        if (!complete) {
+            return 0;
+        }
+        double smallest = 1;
+        for (int k = 0; k + 1 < route.length; k++) {
+            double total = 0;
+            for (int i = graph.neighborsStart(route[k]); i < graph.neighborsEnd(route[k]); i++) {
+                if (k > 0 && graph.neighborAt(i) == route[k - 1]) continue;
+                total += pheromones.get(graph.edgeIdAt(i));
+            }
+            double share = (total > 0) ? pheromones.get(graph.edgeId(route[k], route[k + 1])) / total : 0;
+            smallest = Math.min(smallest, share);
+        }
+        return smallest;
+    }
+
+    private static long hash(int[] route) {
+        long hash = 1;
+        for (int vertex : route) {
+            hash = hash * 0x9e3779b97f4a7c15L + vertex;
+        }
+        // Kept clear of the sample counts recorded for incomplete routes.
+        return hash | Long.MIN_VALUE;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * @return  The vertices of the dominant route, from the source.
+     */
+    public int[] getDominantRoute() {
+        return route.clone();
+    }
+
+    public double getConcentration() {
+        return concentration;
+    }
+
+    public double getStability() {
+        return stability;
+    }
+
+    public LatencyHistogram getReconvergence() {
+        return reconvergence;
+    }
+}
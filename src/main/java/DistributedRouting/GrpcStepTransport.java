@@ -0,0 +1,67 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.Edge;
+import DistributedRouting.grpc.LogGrpc;
+import DistributedRouting.grpc.MessageLog;
+import DistributedRouting.grpc.NeighborsReply;
+import DistributedRouting.grpc.NeighborsRequest;
+import DistributedRouting.grpc.StepRequest;
+import DistributedRouting.network.Candidates;
+import DistributedRouting.network.StepTransport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Carries steps over the Step stream of the gRPC Log service. The stream is
+ * opened by the first step.
+ */
+public class GrpcStepTransport implements StepTransport {
+    private final LogGrpc.LogStub stub;
+    private StepStream stream;
+
+    public GrpcStepTransport(LogGrpc.LogStub stub) {
+        this.stub = stub;
+    }
+
+    @Override
+    public void step(int antId, int previousVertex, int currentVertex, float modifier, int saveIteration,
+                     Candidates out) throws IOException {
+        StepRequest.Builder request = StepRequest.newBuilder()
+                .setPosition(NeighborsRequest.newBuilder()
+                        .setNodeId(currentVertex)
+                        .setPrevNode(previousVertex))
+                .setSaveIteration(saveIteration);
+        if (previousVertex >= 0) {
+            request.setMove(MessageLog.newBuilder()
+                    .setAntId(antId)
+                    .setPrevVertex(previousVertex)
+                    .setNextVertex(currentVertex)
+                    .setModifier(modifier));
+        }
+        if (stream == null) {
+            stream = new StepStream(stub);
+        }
+        NeighborsReply reply;
+        try {
+            reply = stream.exchange(request.build());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a step reply");
+        } catch (IllegalStateException ex) {
+            throw new IOException(ex.getMessage(), ex.getCause());
+        }
+        out.clear();
+        for (Edge edge : reply.getEdgesList()) {
+            out.add(edge.getNodeId(), edge.getPheromoneLevel());
+        }
+        out.setStop(reply.getStop());
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
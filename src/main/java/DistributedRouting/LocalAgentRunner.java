@@ -0,0 +1,100 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.MessageLog;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.LatencyHistogram;
+import DistributedRouting.util.Logging;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.util.TickScheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An agent that picks its moves from a {@link TopologyCache} instead of
+ * asking the controller for its neighbors. Moves are still reported, over a
+ * Report stream that sends nothing back, so a step costs one small one-way
+ * message and no reply has to be built or awaited. Snapshot requests go
+ * through the shared {@link AsyncLogClient} without waiting either.
+ */
+public class LocalAgentRunner implements Runnable {
+
+    private final AgentCore core;
+    private final TopologyCache cache;
+    private final AsyncLogClient client;
+
+    private final TickScheduler scheduler;
+    private final CountDownLatch countdown;
+    // Time taken to pick a move from the cache.
+    private final LatencyHistogram selectLatency;
+
+    /**
+     * @param core          Agent to drive.
+     * @param cache         Ready cache, may be shared with other agents.
+     * @param client        Client of the controller's Log service, may be shared.
+     * @param scheduler     Paces the agent.
+     * @param countdown     Counted down once the agent is done.
+     * @param metrics       Records client-side latencies.
+     */
+    public LocalAgentRunner(AgentCore core, TopologyCache cache, AsyncLogClient client,
+                            TickScheduler scheduler, CountDownLatch countdown, Metrics metrics) {
+        Logging.logService("Starting local agent " + core.getId());
+        this.core = core;
+        this.cache = cache;
+        this.client = client;
+        this.scheduler = scheduler;
+        this.countdown = countdown;
+        this.selectLatency = metrics.latency("client.Select");
+    }
+
+    /**
+     * Main loop of LocalAgentRunner, the equivalent of {@link AgentRunner#run()}.
+     */
+    public void run() {
+        int messageLimit = 2000;
+        int currMessages = 0;
+        RawGraph graph = cache.getGraph();
+        CandidateBuffer candidates = CandidateBuffer.forGraph(graph);
+        AsyncLogClient.Reporter report = client.report(core.getId());
+        try {
+            while (!cache.isStopped() && currMessages++ <= messageLimit) {
+                scheduler.awaitTick();
+
+                long start = System.nanoTime();
+                // The graph may have changed since the last move.
+                if (cache.getGraph() != graph) {
+                    graph = cache.getGraph();
+                    candidates = CandidateBuffer.forGraph(graph);
+                }
+                PheromoneStore pheromones = cache.getPheromones();
+                int count = candidates.collect(graph, pheromones, core);
+                // An ant on an isolated vertex waits for an edge to be added.
+                if (count == 0) {
+                    continue;
+                }
+                int previousVertex = core.getCurrentVertex();
+                core.traverse(candidates.nodes, candidates.levels, count);
+                selectLatency.recordSince(start);
+
+                report.send(MessageLog.newBuilder()
+                        .setAntId(core.getId())
+                        .setPrevVertex(previousVertex)
+                        .setNextVertex(core.getCurrentVertex())
+                        .setModifier(core.getModifier())
+                        .build());
+                if (currMessages % 100 == 0) {
+                    client.saveGraph(currMessages);
+                }
+            }
+            if (cache.isStopped()) {
+                Logging.logService("Agent " + core.getId() + " stopping, the colony has converged");
+            }
+            report.close(5, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            Logging.logError("Encountered error in agent " + core.getId() + " in main loop: " + ex.getMessage());
+            report.cancel(ex);
+        }
+        countdown.countDown();
+    }
+}
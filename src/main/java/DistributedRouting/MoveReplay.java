@@ -0,0 +1,143 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.MoveLog;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.util.Logging;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.visual.GraphRenderer;
+import DistributedRouting.visual.Visualizer;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rebuilds a run from its {@link MoveLog}. Every move is deposited again, in
+ * the order and at the tick of the pheromone clock it was recorded at, so
+ * the levels evolve as they did live, up to the moves the log recorded in a
+ * different order than they were applied in, and is handed to a visualizer and
+ * counted by metrics like a live move would be. Replay runs at a chosen
+ * multiple of the live speed, or unthrottled, which is far faster than the
+ * run itself: nothing but the deposits is redone.
+ */
+public class MoveReplay {
+    private final MoveLog.Reader log;
+    private final PheromoneStore pheromones;
+    private volatile int tick;
+    private long position = 0;
+
+    /**
+     * @param log   Log to replay, from its first move.
+     */
+    public MoveReplay(MoveLog.Reader log) {
+        this.log = log;
+        this.tick = (log.size() > 0) ? log.tick(0) : 0;
+        this.pheromones = new PheromoneStore(log.numEdges(), 0, log.getDecay(), () -> tick);
+        log.restoreStart(pheromones);
+    }
+
+    /**
+     * Levels of the replayed run. They are safe to read from other threads
+     * while the replay is running.
+     */
+    public PheromoneStore getPheromones() {
+        return pheromones;
+    }
+
+    /**
+     * @return  Number of moves replayed so far.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Replays moves up to a position in the log.
+     *
+     * @param end           Position to stop at, at most the size of the log.
+     * @param visualizer    Told of every move.
+     * @param metrics       Counts every move as a step.
+     * @param speed         Multiple of the live speed to replay at, or 0 to
+     *                      replay as fast as possible.
+     * @return              Number of moves replayed.
+     */
+    public long replay(long end, Visualizer visualizer, Metrics metrics, double speed) {
+        long start = position;
+        long startNanos = System.nanoTime();
+        int startTick = tick;
+        double nanosPerTick = (speed > 0) ? log.getTickNanos() / speed : 0;
+        for (; position < end; position++) {
+            int next = log.tick(position);
+            // The clock never goes back: a move recorded after one of a later
+            // tick is deposited at that later tick.
+            if (next > tick) {
+                if (speed > 0) {
+                    long due = startNanos + (long) ((next - startTick) * nanosPerTick);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                tick = next;
+            }
+            int edge = log.edgeId(position);
+            pheromones.deposit(edge, log.getIncrement() * log.modifier(position));
+            visualizer.moved(log.antId(position), edge);
+            metrics.step();
+        }
+        return position - start;
+    }
+
+    /**
+     * Replays the rest of the log.
+     *
+     * @see #replay(long, Visualizer, Metrics, double)
+     */
+    public long replay(Visualizer visualizer, Metrics metrics, double speed) {
+        return replay(log.size(), visualizer, metrics, speed);
+    }
+
+    /**
+     * Replays a log recorded by {@link AgentController#main}.
+     *
+     * @param args  The log, optionally the speed (0 for as fast as possible,
+     *              the default) and --headless to replay without drawing.
+     */
+    public static void main(String[] args) throws Exception {
+        boolean headless = Arrays.asList(args).contains("--headless");
+        String[] positional = Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+        double speed = (positional.length > 1) ? Double.parseDouble(positional[1]) : 0;
+        MoveLog.Reader log = MoveLog.open(Paths.get(positional[0]));
+        MoveReplay replay = new MoveReplay(log);
+
+        GraphRenderer renderer = null;
+        if (!headless) {
+            renderer = new GraphRenderer(AgentController.drawGraph(log.getGraph()), replay.getPheromones(),
+                    30, 1 << 16);
+            int numAnts = 0;
+            for (long m = 0; m < log.size(); m++) {
+                numAnts = Math.max(numAnts, log.antId(m) + 1);
+            }
+            Random random = new Random(numAnts);
+            for (int i = 0; i < numAnts; i++) {
+                renderer.addAnt(i, String.format("#%06x", random.nextInt(0xffffff + 1)));
+            }
+            renderer.start();
+        }
+        Metrics metrics = new Metrics();
+        metrics.register("DistributedRouting:type=ReplayMetrics");
+
+        long start = System.nanoTime();
+        long moves = replay.replay(headless ? Visualizer.HEADLESS : renderer, metrics, speed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Logging.logService(String.format("Replayed %d moves over %d ticks in %.3fs (%.0f moves/s)",
+                moves, (moves > 0) ? log.tick(moves - 1) - log.tick(0) : 0, seconds, moves / seconds));
+        if (renderer != null) {
+            // Leave the last frame up for a moment before closing.
+            TimeUnit.SECONDS.sleep(1);
+            renderer.close();
+        }
+    }
+}
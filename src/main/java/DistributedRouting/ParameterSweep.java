@@ -0,0 +1,265 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.Logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runs a grid of configurations, each as its own {@link SimulationEngine}
+ * until its colony converges, on a fixed number of threads. Runs share
+ * nothing but the immutable configurations, so they scale with the cores,
+ * and every run gives the same result however many run beside it.
+ */
+public class ParameterSweep {
+    private static final String CSV_HEADER = "seed,vertices,edgeProbability,ants,increment,decay,delta,"
+            + "decayInterval,converged,ticks,steps,arrivals,routeLength,shortestLength,stretch,concentration,"
+            + "elapsedMillis";
+
+    private final List<SimulationConfig> configs;
+    private final int parallelism;
+
+    /**
+     * @param configs       Configurations to run.
+     * @param parallelism   Most runs at the same time.
+     */
+    public ParameterSweep(List<SimulationConfig> configs, int parallelism) {
+        this.configs = configs;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Outcome of one run of a sweep.
+     */
+    public static class Result {
+        private final SimulationConfig config;
+        private final SimulationResult run;
+        private final boolean converged;
+        private final int routeLength;
+        private final int shortestLength;
+        private final double concentration;
+
+        Result(SimulationConfig config, SimulationResult run, boolean converged, int routeLength,
+               int shortestLength, double concentration) {
+            this.config = config;
+            this.run = run;
+            this.converged = converged;
+            this.routeLength = routeLength;
+            this.shortestLength = shortestLength;
+            this.concentration = concentration;
+        }
+
+        public SimulationConfig getConfig() {
+            return config;
+        }
+
+        public SimulationResult getRun() {
+            return run;
+        }
+
+        public boolean isConverged() {
+            return converged;
+        }
+
+        /**
+         * @return  Number of edges of the dominant route, or -1 if it does
+         *          not reach the destination.
+         */
+        public int getRouteLength() {
+            return routeLength;
+        }
+
+        /**
+         * @return  Number of edges of a shortest path, or -1 if the
+         *          destination cannot be reached.
+         */
+        public int getShortestLength() {
+            return shortestLength;
+        }
+
+        /**
+         * @return  How many times longer the dominant route is than a
+         *          shortest path, or NaN if either is missing.
+         */
+        public double getStretch() {
+            return (routeLength > 0 && shortestLength > 0) ? routeLength / (double) shortestLength : Double.NaN;
+        }
+
+        public double getConcentration() {
+            return concentration;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%s,%d,%s,%s,%d,%d,%b,%d,%d,%d,%d,%d,%.4f,%.4f,%.3f",
+                    config.getSeed(), config.getNumVertices(), config.getEdgeProbability(), config.getNumAnts(),
+                    config.getIncrement(), config.getDecay(), config.getDelta(), config.getDecayInterval(),
+                    converged, run.getTicks(), run.getSteps(), run.getArrivals(), routeLength, shortestLength,
+                    getStretch(), concentration, run.getElapsedNanos() / 1e6);
+        }
+    }
+
+    /**
+     * Runs a single configuration until it converges or reaches its tick limit.
+     *
+     * @param config    Configuration to run.
+     * @return          The outcome of the run.
+     */
+    public static Result run(SimulationConfig config) {
+        RawGraph graph = config.buildGraph();
+        SimulationEngine engine = config.createEngine(graph);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, engine.getPheromones());
+        SimulationResult run = engine.runUntilConverged(config.getMaxTicks(), monitor, 10);
+        int[] route = monitor.getDominantRoute();
+        boolean complete = route.length > 0 && route[route.length - 1] == graph.getDest();
+        return new Result(config, run, monitor.isConverged(), complete ? route.length - 1 : -1,
+                graph.distance(graph.getSource(), graph.getDest()), monitor.getConcentration());
+    }
+
+    /**
+     * Runs every configuration.
+     *
+     * @return  The outcomes, in the order of the configurations.
+     */
+    public List<Result> run() throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Callable<Result>> tasks = new ArrayList<>(configs.size());
+            for (SimulationConfig config : configs) {
+                tasks.add(() -> run(config));
+            }
+            List<Result> results = new ArrayList<>(configs.size());
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes outcomes as CSV, one line per run after a header line.
+     *
+     * @param results       Outcomes to write.
+     * @param path          File to write to, replaced if it exists.
+     * @throws IOException  Thrown if the file cannot be written.
+     */
+    public static void writeCsv(List<Result> results, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            for (Result result : results) {
+                writer.write(result.toCsv());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Builds every combination of some values of one parameter with a list
+     * of configurations.
+     *
+     * @param configs   Configurations to vary.
+     * @param values    Values the parameter takes.
+     * @param setter    Sets the parameter on a builder.
+     * @return          One configuration per pair of a configuration and a value.
+     */
+    public static <T> List<SimulationConfig> vary(List<SimulationConfig> configs, List<T> values,
+                                                  BiFunction<SimulationConfig.Builder, T, SimulationConfig.Builder> setter) {
+        List<SimulationConfig> varied = new ArrayList<>(configs.size() * values.size());
+        for (SimulationConfig config : configs) {
+            for (T value : values) {
+                varied.add(setter.apply(config.toBuilder(), value).build());
+            }
+        }
+        return varied;
+    }
+
+    /**
+     * Parses a comma-separated list, where integer parameters may also give
+     * an inclusive range as first..last.
+     */
+    private static <T> List<T> parse(String spec, Function<String, T> parser, boolean ranges) {
+        List<T> values = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            int dots = part.indexOf("..");
+            if (ranges && dots > 0) {
+                long first = Long.parseLong(part.substring(0, dots));
+                long last = Long.parseLong(part.substring(dots + 2));
+                for (long v = first; v <= last; v++) {
+                    values.add(parser.apply(String.valueOf(v)));
+                }
+            } else {
+                values.add(parser.apply(part));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Runs a grid of parameters given as key=value arguments, e.g.
+     * <pre>
+     *     seeds=1..50 decay=0.95,0.97 increment=0.01,0.02 delta=10,15 ants=15 vertices=20
+     * </pre>
+     * Other keys are p (edge probability), interval (ticks per decay step),
+     * ticks (limit per run), threads (default: one per core) and out (the CSV
+     * file, default sweep.csv).
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        List<SimulationConfig> configs = List.of(new SimulationConfig.Builder().build());
+        configs = vary(configs, parse(options.getOrDefault("seeds", "0"), Long::parseLong, true),
+                SimulationConfig.Builder::setSeed);
+        configs = vary(configs, parse(options.getOrDefault("vertices", "20"), Integer::parseInt, true),
+                SimulationConfig.Builder::setNumVertices);
+        configs = vary(configs, parse(options.getOrDefault("p", "0.2"), Float::parseFloat, false),
+                SimulationConfig.Builder::setEdgeProbability);
+        configs = vary(configs, parse(options.getOrDefault("ants", "15"), Integer::parseInt, true),
+                SimulationConfig.Builder::setNumAnts);
+        configs = vary(configs, parse(options.getOrDefault("increment", "0.01"), Float::parseFloat, false),
+                SimulationConfig.Builder::setIncrement);
+        configs = vary(configs, parse(options.getOrDefault("decay", "0.97"), Float::parseFloat, false),
+                SimulationConfig.Builder::setDecay);
+        configs = vary(configs, parse(options.getOrDefault("delta", "15"), Integer::parseInt, true),
+                SimulationConfig.Builder::setDelta);
+        configs = vary(configs, parse(options.getOrDefault("interval", "2"), Integer::parseInt, true),
+                SimulationConfig.Builder::setDecayInterval);
+        configs = vary(configs, parse(options.getOrDefault("ticks", "2001"), Long::parseLong, false),
+                SimulationConfig.Builder::setMaxTicks);
+
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        Path out = Paths.get(options.getOrDefault("out", "sweep.csv"));
+        Logging.logService(String.format("Running %d configurations on %d threads", configs.size(), threads));
+        long start = System.nanoTime();
+        List<Result> results = new ParameterSweep(configs, threads).run();
+        writeCsv(results, out);
+        long converged = results.stream().filter(Result::isConverged).count();
+        Logging.logService(String.format("%d of %d runs converged in %.1fs, results in %s",
+                converged, results.size(), (System.nanoTime() - start) / 1e9, out));
+    }
+}
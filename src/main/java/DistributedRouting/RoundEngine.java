@@ -0,0 +1,180 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+import DistributedRouting.util.Logging;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a colony in synchronous rounds. During a round every ant picks its
+ * move in parallel on a ForkJoinPool, reading the pheromone levels as they
+ * were when the round started. The deposits of the round are then applied at
+ * the barrier in ant id order. Since each ant samples with its own seeded
+ * generator, a run is reproducible bit for bit whatever the parallelism.
+ */
+public class RoundEngine {
+
+    /**
+     * Ants handled by one leaf task.
+     */
+    private static final int ANTS_PER_TASK = 256;
+
+    private final RawGraph graph;
+    private final PheromoneStore pheromones;
+    private final List<AgentCore> agents;
+    private final int decayInterval;
+    private final ForkJoinPool pool;
+
+    // Move made by each ant in the current round, -1 if it could not move.
+    private final int[] movedEdge;
+    private final float[] deposit;
+    // Told about every deposit while running until convergence.
+    private ConvergenceMonitor monitor;
+
+    private long round = 0;
+    private long steps = 0;
+    private long arrivals = 0;
+
+    public RoundEngine(RawGraph graph, int numAnts, long seed) {
+        this(graph, AgentCore.createColony(graph, numAnts, seed), 2, ForkJoinPool.commonPool());
+    }
+
+    public RoundEngine(RawGraph graph, List<AgentCore> agents, int decayInterval, ForkJoinPool pool) {
+        this.graph = graph;
+        this.agents = agents;
+        this.decayInterval = decayInterval;
+        this.pool = pool;
+        this.pheromones = new PheromoneStore(graph.numEdges(), Constants.INCREMENT, Constants.DECAY,
+                () -> (int) (round / decayInterval));
+        this.movedEdge = new int[agents.size()];
+        this.deposit = new float[agents.size()];
+    }
+
+    /**
+     * Lets every ant move once, then applies the deposits. Decay follows from
+     * the round count.
+     */
+    public void round() {
+        pool.invoke(new MoveTask(0, agents.size()));
+
+        for (int i = 0; i < movedEdge.length; i++) {
+            if (movedEdge[i] < 0) continue;
+            pheromones.deposit(movedEdge[i], deposit[i]);
+            if (monitor != null) {
+                monitor.onDeposit(movedEdge[i]);
+            }
+            steps++;
+            AgentCore agent = agents.get(i);
+            if (agent.getCurrentVertex() == agent.getDestination()) {
+                arrivals++;
+            }
+        }
+        round++;
+    }
+
+    /**
+     * Runs a number of rounds.
+     *
+     * @param rounds    Number of rounds to run.
+     * @return          The totals of this engine since it was created.
+     */
+    public SimulationResult run(long rounds) {
+        long start = System.nanoTime();
+        for (long r = 0; r < rounds; r++) {
+            round();
+        }
+        return result(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs until the colony converges, or for at most a number of rounds. Up
+     * to the round it stops at, the run is the same as {@link #run(long)}.
+     *
+     * @param maxRounds         Most rounds to run.
+     * @param monitor           Monitor of this engine's graph and pheromones.
+     * @param sampleInterval    Rounds between two samples of the monitor.
+     * @return                  The totals of this engine since it was created.
+     */
+    public SimulationResult runUntilConverged(long maxRounds, ConvergenceMonitor monitor, int sampleInterval) {
+        this.monitor = monitor;
+        long start = System.nanoTime();
+        for (long r = 0; r < maxRounds; r++) {
+            round();
+            if (round % sampleInterval == 0 && monitor.sample()) {
+                break;
+            }
+        }
+        this.monitor = null;
+        return result(System.nanoTime() - start);
+    }
+
+    private SimulationResult result(long elapsedNanos) {
+        return new SimulationResult(round, steps, arrivals, elapsedNanos, pheromones.snapshot());
+    }
+
+    public RawGraph getGraph() {
+        return graph;
+    }
+
+    public PheromoneStore getPheromones() {
+        return pheromones;
+    }
+
+    /**
+     * Picks the moves of the ants in [from, to). Nothing is written to the
+     * pheromone store, so every ant sees the levels of the previous barrier.
+     */
+    @SuppressWarnings("serial")
+    private class MoveTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private MoveTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ANTS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MoveTask(from, mid), new MoveTask(mid, to));
+                return;
+            }
+            CandidateBuffer candidates = CandidateBuffer.forGraph(graph);
+            for (int i = from; i < to; i++) {
+                AgentCore agent = agents.get(i);
+                int count = candidates.collect(graph, pheromones, agent);
+                if (count == 0) {
+                    movedEdge[i] = -1;
+                    continue;
+                }
+                int choice = agent.traverse(candidates.nodes, candidates.levels, count);
+                movedEdge[i] = candidates.edges[choice];
+                deposit[i] = Constants.INCREMENT * agent.getModifier();
+            }
+        }
+    }
+
+    /**
+     * Runs the same setup as {@link AgentController#main} in rounds.
+     *
+     * @param args  seed, and optionally the number of vertices, ants and rounds.
+     */
+    public static void main(String[] args) {
+        long seed = Long.parseLong(args[0]);
+        int numVertices = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        int numAnts = (args.length > 2) ? Integer.parseInt(args[2]) : 15;
+        long rounds = (args.length > 3) ? Long.parseLong(args[3]) : 2001;
+
+        RawGraph graph = SampleGraphs.erdosReyniGraph(numVertices, 0.2f, new Random(seed)).asUndirectedGraph();
+        RoundEngine engine = new RoundEngine(graph, numAnts, seed);
+        Logging.logService(engine.run(rounds).toString());
+    }
+}
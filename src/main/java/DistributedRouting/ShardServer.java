@@ -0,0 +1,456 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.AntState;
+import DistributedRouting.grpc.Handoffs;
+import DistributedRouting.grpc.PheromoneDeltas;
+import DistributedRouting.grpc.ShardFinished;
+import DistributedRouting.grpc.ShardGrpc;
+import DistributedRouting.grpc.StatusReply;
+import DistributedRouting.objects.GraphPartition;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+import DistributedRouting.util.Logging;
+import DistributedRouting.util.SplitMix64;
+import DistributedRouting.util.TickScheduler;
+import io.grpc.*;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One shard of a run whose graph is split between several processes by a
+ * {@link GraphPartition}. A shard holds the pheromones of its own edges and
+ * moves the ants standing on its own vertices, in-process like the
+ * {@link SimulationEngine}. Ants that step onto a vertex of another shard
+ * are handed off to that shard over gRPC, one batch per shard and tick. Cut
+ * edges are held by both of their shards; each shard sends the pheromone it
+ * deposited on them to the other every few ticks, decayed to the tick it is
+ * sent at, so both copies see every deposit. Only the thread running ticks
+ * writes to a shard's store; deltas received are applied on the next tick.
+ * A run ends with every shard telling the others it has
+ * {@link #finish finished}, so no ant is handed over to a shard that stopped
+ * listening.
+ */
+public class ShardServer {
+    /**
+     * Ticks between two reconciliations of the cut edges.
+     */
+    private static final int RECONCILE_INTERVAL = 10;
+    private static final long RPC_DEADLINE_SECONDS = 5;
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+
+    private final GraphPartition partition;
+    private final RawGraph graph;
+    private final PheromoneStore pheromones;
+    private final int port;
+
+    // Ants standing on this shard, only touched by the thread running ticks.
+    private final List<AgentCore> agents = new ArrayList<>();
+    // Ants handed over by other shards, added to the agents on the next tick.
+    private final Queue<AgentCore> arrivals = new ConcurrentLinkedQueue<>();
+    // Deposits of other shards on cut edges, applied on the next tick.
+    private final Queue<PheromoneDeltas> receivedDeltas = new ConcurrentLinkedQueue<>();
+    private final CandidateBuffer candidates;
+
+    // Pheromone deposited on cut edges since they were last reconciled, as
+    // of the pheromone tick in pendingTicks.
+    private final float[] pendingDeltas;
+    private final int[] pendingTicks;
+    private final BitSet dirtyCutEdges = new BitSet();
+
+    private final ManagedChannel[] channels;
+    private final ShardGrpc.ShardStub[] peers;
+    // Ants leaving for each peer during the current tick.
+    private final Handoffs.Builder[] outgoing;
+    // Handoffs and reconciliations sent but not yet acknowledged.
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Counted down by every other shard once it has finished.
+    private final CountDownLatch peersFinished;
+    private Server server;
+
+    // Read by the pheromone clock from RPC threads.
+    private volatile long tick = 0;
+    private long steps = 0;
+    private long arrivalsAtDest = 0;
+
+    /**
+     * @param graph         The whole graph, identical on every shard.
+     * @param shardId       Id of this shard.
+     * @param numShards     Number of shards.
+     * @param colony        Every ant of the run. Only the ants starting on
+     *                      this shard's vertices are kept.
+     * @param decayInterval Number of ticks per decay step.
+     * @param basePort      Shard i listens on basePort + i.
+     */
+    public ShardServer(RawGraph graph, int shardId, int numShards, List<AgentCore> colony,
+                       int decayInterval, int basePort) {
+        this.partition = new GraphPartition(graph, shardId, numShards);
+        this.graph = partition.getLocalGraph();
+        this.pheromones = new PheromoneStore(this.graph.numEdges(), Constants.INCREMENT, Constants.DECAY,
+                () -> (int) (tick / decayInterval));
+        this.port = basePort + shardId;
+        this.candidates = CandidateBuffer.forGraph(this.graph);
+        this.pendingDeltas = new float[this.graph.numEdges()];
+        this.pendingTicks = new int[this.graph.numEdges()];
+        this.peersFinished = new CountDownLatch(numShards - 1);
+        for (AgentCore agent : colony) {
+            if (partition.owns(agent.getCurrentVertex())) {
+                agents.add(agent);
+            }
+        }
+
+        channels = new ManagedChannel[numShards];
+        peers = new ShardGrpc.ShardStub[numShards];
+        outgoing = new Handoffs.Builder[numShards];
+        for (int peer = 0; peer < numShards; peer++) {
+            if (peer == shardId) continue;
+            channels[peer] = Grpc.newChannelBuilder(String.format("localhost:%d", basePort + peer),
+                    InsecureChannelCredentials.create()).build();
+            // Peers started later than this shard are waited for.
+            peers[peer] = ShardGrpc.newStub(channels[peer]).withWaitForReady();
+            outgoing[peer] = Handoffs.newBuilder().setShardId(shardId);
+        }
+    }
+
+    public ShardServer start() throws IOException {
+        server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                .addService(new ShardImpl())
+                .build()
+                .start();
+        Logging.logService(String.format("Shard %d listening on %d with %d ants",
+                partition.getShardId(), port, agents.size()));
+        return this;
+    }
+
+    /**
+     * Moves every ant on this shard once and hands off the ants that left it.
+     */
+    public void tick() {
+        takeReceived();
+        int kept = 0;
+        for (int i = 0; i < agents.size(); i++) {
+            AgentCore agent = agents.get(i);
+            if (step(agent)) {
+                agents.set(kept++, agent);
+            }
+        }
+        agents.subList(kept, agents.size()).clear();
+        for (int peer = 0; peer < peers.length; peer++) {
+            if (outgoing[peer] != null && outgoing[peer].getAntsCount() > 0) {
+                peers[peer].withDeadlineAfter(RPC_DEADLINE_SECONDS, TimeUnit.SECONDS)
+                        .handoff(outgoing[peer].build(), acknowledgement("hand off ants to shard " + peer));
+                outgoing[peer].clearAnts();
+            }
+        }
+        tick++;
+    }
+
+    /**
+     * @return  False if the agent moved to another shard.
+     */
+    private boolean step(AgentCore agent) {
+        int count = candidates.collect(graph, pheromones, agent);
+        // An ant on an isolated vertex has nowhere to go.
+        if (count == 0) {
+            return true;
+        }
+        int choice = agent.traverse(candidates.nodes, candidates.levels, count);
+        int edge = candidates.edges[choice];
+        float increment = Constants.INCREMENT * agent.getModifier();
+        float before = pheromones.get(edge);
+        // A saturated edge takes nothing, so there is nothing to send either.
+        if (pheromones.deposit(edge, increment) != before && partition.isCut(edge)) {
+            int now = pheromones.currentTick();
+            pendingDeltas[edge] = decayed(pendingDeltas[edge], now - pendingTicks[edge]) + increment;
+            pendingTicks[edge] = now;
+            dirtyCutEdges.set(edge);
+        }
+        steps++;
+        if (agent.getCurrentVertex() == agent.getDestination()) {
+            arrivalsAtDest++;
+        }
+
+        if (partition.owns(agent.getCurrentVertex())) {
+            return true;
+        }
+        handoff(agent);
+        return false;
+    }
+
+    private void handoff(AgentCore agent) {
+        outgoing[partition.owner(agent.getCurrentVertex())].addAnts(AntState.newBuilder()
+                .setAntId(agent.getId())
+                .setCurrentVertex(agent.getCurrentVertex())
+                .setPreviousVertex(agent.getPreviousVertex())
+                .setSource(agent.getSource())
+                .setDestination(agent.getDestination())
+                .setTimestep(agent.getTimestep())
+                .setLastSeenSource(agent.getLastSeenSource())
+                .setModifier(agent.getModifier())
+                .setSeed(agent.nextSeed())
+                .setDelta(agent.getDelta()));
+    }
+
+    /**
+     * Sends the pheromone deposited on cut edges since the last call to the
+     * shards on the other side of them.
+     */
+    public void reconcile() {
+        int now = pheromones.currentTick();
+        PheromoneDeltas.Builder[] deltas = new PheromoneDeltas.Builder[peers.length];
+        for (int edge = dirtyCutEdges.nextSetBit(0); edge >= 0; edge = dirtyCutEdges.nextSetBit(edge + 1)) {
+            int source = graph.edgeSource(edge);
+            int target = graph.edgeTarget(edge);
+            int peer = partition.owns(source) ? partition.owner(target) : partition.owner(source);
+            if (deltas[peer] == null) {
+                deltas[peer] = PheromoneDeltas.newBuilder().setShardId(partition.getShardId()).setTick(now);
+            }
+            deltas[peer].addSources(source).addTargets(target)
+                    .addIncrements(decayed(pendingDeltas[edge], now - pendingTicks[edge]));
+            pendingDeltas[edge] = 0;
+        }
+        dirtyCutEdges.clear();
+        for (int peer = 0; peer < peers.length; peer++) {
+            if (deltas[peer] != null) {
+                peers[peer].withDeadlineAfter(RPC_DEADLINE_SECONDS, TimeUnit.SECONDS)
+                        .reconcile(deltas[peer].build(), acknowledgement("reconcile with shard " + peer));
+            }
+        }
+    }
+
+    /**
+     * Adds the pheromone other shards deposited on cut edges. Each increment
+     * is decayed from the sender's tick to this shard's, forwards if this
+     * shard is behind, so both copies of an edge end up at the same level.
+     */
+    private void applyReceivedDeltas() {
+        PheromoneDeltas deltas;
+        while ((deltas = receivedDeltas.poll()) != null) {
+            int gap = pheromones.currentTick() - deltas.getTick();
+            for (int i = 0; i < deltas.getIncrementsCount(); i++) {
+                int edge = graph.edgeId(deltas.getSources(i), deltas.getTargets(i));
+                if (edge >= 0) {
+                    pheromones.deposit(edge, decayed(deltas.getIncrements(i), gap));
+                }
+            }
+        }
+    }
+
+    private float decayed(float level, int ticks) {
+        return ticks == 0 ? level : (float) (level * Math.pow(pheromones.getDecay(), ticks));
+    }
+
+    private void takeReceived() {
+        AgentCore arrived;
+        while ((arrived = arrivals.poll()) != null) {
+            agents.add(arrived);
+        }
+        applyReceivedDeltas();
+    }
+
+    private StreamObserver<StatusReply> acknowledgement(String action) {
+        inFlight.incrementAndGet();
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(StatusReply reply) {}
+
+            @Override
+            public void onError(Throwable t) {
+                Logging.logError("Shard " + partition.getShardId() + " failed to " + action + ": " + t.getMessage());
+                inFlight.decrementAndGet();
+            }
+
+            @Override
+            public void onCompleted() {
+                inFlight.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Runs a number of ticks, reconciling the cut edges along the way.
+     *
+     * @param ticks     Number of ticks to run.
+     * @param scheduler Paces the ticks. Shards decay pheromone by their own
+     *                  tick count, so shards of a run should tick at the same rate.
+     * @return          The totals of this shard.
+     * @throws TimeoutException     Thrown if another shard cannot be reached.
+     */
+    public SimulationResult run(long ticks, TickScheduler scheduler) throws InterruptedException, TimeoutException {
+        awaitPeers();
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            scheduler.awaitTick();
+            tick();
+            if (tick % RECONCILE_INTERVAL == 0) {
+                reconcile();
+            }
+        }
+        reconcile();
+        return new SimulationResult(tick, steps, arrivalsAtDest, System.nanoTime() - start, pheromones.snapshot());
+    }
+
+    /**
+     * Blocks until every other shard is reachable. Handing an ant to a shard
+     * that is not up yet would otherwise leave it stuck in the channel's
+     * reconnect backoff for seconds.
+     */
+    private void awaitPeers() throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CONNECT_TIMEOUT_SECONDS);
+        for (int peer = 0; peer < channels.length; peer++) {
+            if (channels[peer] == null) continue;
+            while (channels[peer].getState(true) != ConnectivityState.READY) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new TimeoutException("Shard " + partition.getShardId() + " could not reach shard " + peer
+                            + " within " + CONNECT_TIMEOUT_SECONDS + "s");
+                }
+                channels[peer].resetConnectBackoff();
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * Waits until every handoff and reconciliation sent has been
+     * acknowledged, then takes in the ants and deltas that arrived meanwhile.
+     */
+    public void awaitQuiescent() throws InterruptedException {
+        while (inFlight.get() > 0) {
+            Thread.sleep(1);
+        }
+        takeReceived();
+    }
+
+    /**
+     * Ends a run: waits until everything this shard sent was acknowledged,
+     * tells the other shards, and waits for them to do the same. Once every
+     * shard has finished, no more ants or deltas can arrive, and the ones
+     * that did are taken in. Call on every shard after {@link #run}.
+     *
+     * @param timeout   Longest time to wait for the other shards.
+     * @param unit      Unit of the timeout.
+     * @return          False if some shard did not finish in time.
+     */
+    public boolean finish(long timeout, TimeUnit unit) throws InterruptedException {
+        awaitQuiescent();
+        ShardFinished finished = ShardFinished.newBuilder().setShardId(partition.getShardId()).build();
+        for (int peer = 0; peer < peers.length; peer++) {
+            if (peers[peer] != null) {
+                peers[peer].withDeadlineAfter(RPC_DEADLINE_SECONDS, TimeUnit.SECONDS)
+                        .finish(finished, acknowledgement("tell shard " + peer + " it finished"));
+            }
+        }
+        boolean done = peersFinished.await(timeout, unit);
+        if (!done) {
+            Logging.logError("Shard " + partition.getShardId() + " gave up waiting for "
+                    + peersFinished.getCount() + " shards to finish");
+        }
+        awaitQuiescent();
+        return done;
+    }
+
+    /**
+     * Number of ants on this shard. Only meaningful while no ticks are running.
+     */
+    public int numAgents() {
+        return agents.size() + arrivals.size();
+    }
+
+    public PheromoneStore getPheromones() {
+        return pheromones;
+    }
+
+    public GraphPartition getPartition() {
+        return partition;
+    }
+
+    /**
+     * Stops taking handoffs, then takes in the ants handed over since the
+     * last tick, so that {@link #numAgents()} counts every ant this shard
+     * accepted. Handoffs sent to the shard after this are refused, which
+     * {@link #finish} rules out.
+     */
+    public void close() throws InterruptedException {
+        if (server != null) {
+            server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        takeReceived();
+        for (ManagedChannel channel : channels) {
+            if (channel != null) {
+                channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private class ShardImpl extends ShardGrpc.ShardImplBase {
+        @Override
+        public void handoff(Handoffs handoffs, StreamObserver<StatusReply> responseObserver) {
+            boolean success = true;
+            for (AntState state : handoffs.getAntsList()) {
+                if (!partition.owns(state.getCurrentVertex())) {
+                    Logging.logError("Shard " + partition.getShardId() + " was handed ant " + state.getAntId()
+                            + " on vertex " + state.getCurrentVertex() + " it does not own");
+                    success = false;
+                    continue;
+                }
+                arrivals.add(new AgentCore(state.getAntId(), state.getCurrentVertex(), state.getPreviousVertex(),
+                        state.getSource(), state.getDestination(), state.getTimestep(), state.getLastSeenSource(),
+                        state.getModifier(), new SplitMix64(state.getSeed()), state.getDelta()));
+            }
+            responseObserver.onNext(StatusReply.newBuilder().setSuccess(success).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void reconcile(PheromoneDeltas deltas, StreamObserver<StatusReply> responseObserver) {
+            receivedDeltas.add(deltas);
+            responseObserver.onNext(StatusReply.newBuilder().setSuccess(true).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void finish(ShardFinished finished, StreamObserver<StatusReply> responseObserver) {
+            peersFinished.countDown();
+            responseObserver.onNext(StatusReply.newBuilder().setSuccess(true).build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    /**
+     * Runs one shard. Start one process per shard with the same arguments but
+     * the shard id; every shard generates the same graph and colony from the seed.
+     *
+     * @param args  shard id, number of shards, seed, and optionally the number
+     *              of vertices, ants and ticks.
+     */
+    public static void main(String[] args) throws Exception {
+        int shardId = Integer.parseInt(args[0]);
+        int numShards = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        int numVertices = (args.length > 3) ? Integer.parseInt(args[3]) : 1000;
+        int numAnts = (args.length > 4) ? Integer.parseInt(args[4]) : 100;
+        long ticks = (args.length > 5) ? Long.parseLong(args[5]) : 2000;
+
+        RawGraph graph = SampleGraphs.fastErdosReyniGraph(numVertices, Math.min(0.2, 10.0 / numVertices),
+                seed, true);
+        List<AgentCore> colony = AgentCore.createColony(graph, numAnts, seed);
+        ShardServer shard = new ShardServer(graph, shardId, numShards, colony, 2, Constants.SHARD_PORT).start();
+        SimulationResult result = shard.run(ticks, TickScheduler.fixedRate(10, TimeUnit.MILLISECONDS));
+        // Keep taking the ants slower shards hand over until they are done,
+        // and only count the ants held once no more can arrive.
+        shard.finish(1, TimeUnit.MINUTES);
+        shard.close();
+        Logging.logService(String.format("Shard %d: %s, holding %d ants", shardId, result, shard.numAgents()));
+    }
+}
@@ -0,0 +1,182 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+
+import java.util.Random;
+
+/**
+ * Every parameter of an in-process run: the random graph, the colony and the
+ * pheromone dynamics. Defaults are those of {@link AgentController#main}.
+ * Configurations are immutable and built with {@link Builder}.
+ */
+public class SimulationConfig {
+    private final long seed;
+    private final int numVertices;
+    private final float edgeProbability;
+    private final int numAnts;
+    private final float increment;
+    private final float decay;
+    private final int delta;
+    private final int decayInterval;
+    private final long maxTicks;
+
+    private SimulationConfig(Builder builder) {
+        this.seed = builder.seed;
+        this.numVertices = builder.numVertices;
+        this.edgeProbability = builder.edgeProbability;
+        this.numAnts = builder.numAnts;
+        this.increment = builder.increment;
+        this.decay = builder.decay;
+        this.delta = builder.delta;
+        this.decayInterval = builder.decayInterval;
+        this.maxTicks = builder.maxTicks;
+    }
+
+    /**
+     * Generates the graph of the run. The same configuration always gives
+     * the same graph.
+     *
+     * @return  An undirected Erdos-Renyi graph.
+     */
+    public RawGraph buildGraph() {
+        return SampleGraphs.erdosReyniGraph(numVertices, edgeProbability, new Random(seed)).asUndirectedGraph();
+    }
+
+    /**
+     * Creates an engine ready to run this configuration.
+     *
+     * @param graph     Graph built by {@link #buildGraph()}.
+     * @return          A new engine, sharing nothing with any other.
+     */
+    public SimulationEngine createEngine(RawGraph graph) {
+        return new SimulationEngine(graph, AgentCore.createColony(graph, numAnts, seed, delta), decayInterval,
+                increment, decay);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    public float getEdgeProbability() {
+        return edgeProbability;
+    }
+
+    public int getNumAnts() {
+        return numAnts;
+    }
+
+    public float getIncrement() {
+        return increment;
+    }
+
+    public float getDecay() {
+        return decay;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public int getDecayInterval() {
+        return decayInterval;
+    }
+
+    public long getMaxTicks() {
+        return maxTicks;
+    }
+
+    /**
+     * @return  A builder starting from this configuration.
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .setSeed(seed)
+                .setNumVertices(numVertices)
+                .setEdgeProbability(edgeProbability)
+                .setNumAnts(numAnts)
+                .setIncrement(increment)
+                .setDecay(decay)
+                .setDelta(delta)
+                .setDecayInterval(decayInterval)
+                .setMaxTicks(maxTicks);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("seed=%d vertices=%d p=%.3f ants=%d increment=%s decay=%s delta=%d",
+                seed, numVertices, edgeProbability, numAnts, increment, decay, delta);
+    }
+
+    public static class Builder {
+        private long seed = 0;
+        private int numVertices = 20;
+        private float edgeProbability = 0.2f;
+        private int numAnts = 15;
+        private float increment = Constants.INCREMENT;
+        private float decay = Constants.DECAY;
+        private int delta = AgentCore.DEFAULT_DELTA;
+        private int decayInterval = 2;
+        private long maxTicks = 2001;
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder setNumVertices(int numVertices) {
+            this.numVertices = numVertices;
+            return this;
+        }
+
+        public Builder setEdgeProbability(float edgeProbability) {
+            this.edgeProbability = edgeProbability;
+            return this;
+        }
+
+        public Builder setNumAnts(int numAnts) {
+            this.numAnts = numAnts;
+            return this;
+        }
+
+        public Builder setIncrement(float increment) {
+            this.increment = increment;
+            return this;
+        }
+
+        public Builder setDecay(float decay) {
+            this.decay = decay;
+            return this;
+        }
+
+        public Builder setDelta(int delta) {
+            this.delta = delta;
+            return this;
+        }
+
+        /**
+         * @param decayInterval     Ticks per decay step, see {@link SimulationEngine}.
+         */
+        public Builder setDecayInterval(int decayInterval) {
+            this.decayInterval = decayInterval;
+            return this;
+        }
+
+        /**
+         * @param maxTicks  Ticks after which a run that has not converged is stopped.
+         */
+        public Builder setMaxTicks(long maxTicks) {
+            this.maxTicks = maxTicks;
+            return this;
+        }
+
+        public SimulationConfig build() {
+            return new SimulationConfig(this);
+        }
+    }
+}
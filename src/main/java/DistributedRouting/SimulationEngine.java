@@ -0,0 +1,199 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Constants;
+import DistributedRouting.util.Logging;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a colony in-process, without gRPC, pacing or visualization. Agents
+ * read the graph and pheromone store directly and every tick moves each ant
+ * once, in ant id order. Agents, seeds, neighbor filtering and deposits are
+ * the same as in the networked mode, so the two only differ in scheduling.
+ */
+public class SimulationEngine {
+
+    private final RawGraph graph;
+    private final PheromoneStore pheromones;
+    private final List<AgentCore> agents;
+
+    /**
+     * Number of ticks per decay step. The networked mode moves ants every 50ms
+     * and decays every 100ms, i.e. once every two moves.
+     */
+    private final int decayInterval;
+    // Pheromone deposited by a move with modifier 1.
+    private final float increment;
+
+    // Candidate moves of the ant being stepped.
+    private final CandidateBuffer candidates;
+    // Told about every deposit while running until convergence.
+    private ConvergenceMonitor monitor;
+
+    private long tick = 0;
+    private long steps = 0;
+    private long arrivals = 0;
+
+    public SimulationEngine(RawGraph graph, int numAnts, long seed) {
+        this(graph, AgentCore.createColony(graph, numAnts, seed), 2);
+    }
+
+    public SimulationEngine(RawGraph graph, List<AgentCore> agents, int decayInterval) {
+        this(graph, agents, decayInterval, Constants.INCREMENT, Constants.DECAY);
+    }
+
+    /**
+     * @param graph         Graph the colony walks on.
+     * @param agents        Colony, stepped in list order.
+     * @param decayInterval Ticks per decay step.
+     * @param increment     Pheromone deposited by a move with modifier 1,
+     *                      and the level every edge starts at.
+     * @param decay         Factor levels are scaled by every decay step.
+     */
+    public SimulationEngine(RawGraph graph, List<AgentCore> agents, int decayInterval, float increment,
+                            float decay) {
+        this.graph = graph;
+        this.agents = agents;
+        this.decayInterval = decayInterval;
+        this.increment = increment;
+        this.pheromones = new PheromoneStore(graph.numEdges(), increment, decay,
+                () -> (int) (tick / decayInterval));
+        this.candidates = CandidateBuffer.forGraph(graph);
+    }
+
+    /**
+     * Resumes an engine from a {@link Checkpoint}. The pheromone state is
+     * restored separately, into {@link #getPheromones()}.
+     */
+    SimulationEngine(RawGraph graph, List<AgentCore> agents, int decayInterval, float increment, float decay,
+                     long tick, long steps, long arrivals) {
+        this(graph, agents, decayInterval, increment, decay);
+        this.tick = tick;
+        this.steps = steps;
+        this.arrivals = arrivals;
+    }
+
+    /**
+     * Moves every ant once. Decay follows from the tick count.
+     */
+    public void tick() {
+        for (AgentCore agent : agents) {
+            step(agent);
+        }
+        tick++;
+    }
+
+    private void step(AgentCore agent) {
+        int count = candidates.collect(graph, pheromones, agent);
+        // An ant on an isolated vertex has nowhere to go.
+        if (count == 0) {
+            return;
+        }
+        int choice = agent.traverse(candidates.nodes, candidates.levels, count);
+        pheromones.deposit(candidates.edges[choice], increment * agent.getModifier());
+        if (monitor != null) {
+            monitor.onDeposit(candidates.edges[choice]);
+        }
+        steps++;
+        if (agent.getCurrentVertex() == agent.getDestination()) {
+            arrivals++;
+        }
+    }
+
+    /**
+     * Runs a number of ticks.
+     *
+     * @param ticks     Number of ticks to run.
+     * @return          The totals of this engine since it was created.
+     */
+    public SimulationResult run(long ticks) {
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            tick();
+        }
+        return result(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs until the colony converges, or for at most a number of ticks. Up
+     * to the tick it stops at, the run is the same as {@link #run(long)}.
+     *
+     * @param maxTicks          Most ticks to run.
+     * @param monitor           Monitor of this engine's graph and pheromones.
+     * @param sampleInterval    Ticks between two samples of the monitor.
+     * @return                  The totals of this engine since it was created.
+     */
+    public SimulationResult runUntilConverged(long maxTicks, ConvergenceMonitor monitor, int sampleInterval) {
+        this.monitor = monitor;
+        long start = System.nanoTime();
+        for (long t = 0; t < maxTicks; t++) {
+            tick();
+            if (tick % sampleInterval == 0 && monitor.sample()) {
+                break;
+            }
+        }
+        this.monitor = null;
+        return result(System.nanoTime() - start);
+    }
+
+    private SimulationResult result(long elapsedNanos) {
+        float[] snapshot = new float[pheromones.size()];
+        for (int e = 0; e < snapshot.length; e++) {
+            snapshot[e] = pheromones.get(e);
+        }
+        return new SimulationResult(tick, steps, arrivals, elapsedNanos, snapshot);
+    }
+
+    public RawGraph getGraph() {
+        return graph;
+    }
+
+    public PheromoneStore getPheromones() {
+        return pheromones;
+    }
+
+    List<AgentCore> getAgents() {
+        return agents;
+    }
+
+    int getDecayInterval() {
+        return decayInterval;
+    }
+
+    float getIncrement() {
+        return increment;
+    }
+
+    long getTick() {
+        return tick;
+    }
+
+    long getSteps() {
+        return steps;
+    }
+
+    long getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * Runs the same setup as {@link AgentController#main} headlessly.
+     *
+     * @param args  seed, and optionally the number of vertices, ants and ticks.
+     */
+    public static void main(String[] args) {
+        long seed = Long.parseLong(args[0]);
+        int numVertices = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        int numAnts = (args.length > 2) ? Integer.parseInt(args[2]) : 15;
+        long ticks = (args.length > 3) ? Long.parseLong(args[3]) : 2001;
+
+        RawGraph graph = SampleGraphs.erdosReyniGraph(numVertices, 0.2f, new Random(seed)).asUndirectedGraph();
+        SimulationEngine engine = new SimulationEngine(graph, numAnts, seed);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, engine.getPheromones());
+        Logging.logService(engine.runUntilConverged(ticks, monitor, 10).toString());
+    }
+}
@@ -0,0 +1,59 @@
+package DistributedRouting;
+
+/**
+ * Outcome of a headless simulation run.
+ */
+public class SimulationResult {
+    private final long ticks;
+    private final long steps;
+    private final long arrivals;
+    private final long elapsedNanos;
+    private final float[] pheromoneLevels;
+
+    public SimulationResult(long ticks, long steps, long arrivals, long elapsedNanos, float[] pheromoneLevels) {
+        this.ticks = ticks;
+        this.steps = steps;
+        this.arrivals = arrivals;
+        this.elapsedNanos = elapsedNanos;
+        this.pheromoneLevels = pheromoneLevels;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return  Total number of ant moves made.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return  Number of moves that brought an ant onto its destination.
+     */
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double stepsPerSecond() {
+        return steps / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * @return  Final pheromone level of every edge, indexed by edge id.
+     */
+    public float[] getPheromoneLevels() {
+        return pheromoneLevels;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ticks, %d steps, %d arrivals in %.3fs (%.0f steps/s)",
+                ticks, steps, arrivals, elapsedNanos / 1e9, stepsPerSecond());
+    }
+}
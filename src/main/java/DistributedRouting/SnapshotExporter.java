@@ -0,0 +1,89 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.PheromoneSnapshot;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.util.Logging;
+import DistributedRouting.visual.Visualizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves snapshots of a run away from the RPC threads. Every ant asks for a
+ * snapshot at the same iterations, so only the first request for an
+ * iteration is kept. A single background thread then writes the pheromone
+ * vector as a {@link PheromoneSnapshot} and asks the visualizer for a
+ * picture of the graph.
+ */
+public class SnapshotExporter {
+    private final PheromoneStore pheromones;
+    private final Visualizer visualizer;
+    private final Path directory;
+    private final ExecutorService writer;
+
+    // Highest iteration handed to the writer so far.
+    private final AtomicInteger lastIteration = new AtomicInteger(0);
+
+    /**
+     * @param pheromones    Store to take snapshots of.
+     * @param visualizer    Asked for a picture alongside every snapshot.
+     * @param directory     Directory the snapshots are written to.
+     */
+    public SnapshotExporter(PheromoneStore pheromones, Visualizer visualizer, Path directory) {
+        this.pheromones = pheromones;
+        this.visualizer = visualizer;
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Asks for a snapshot. Returns immediately.
+     *
+     * @param iteration     Iteration the snapshot belongs to.
+     * @return              False if a snapshot of this or a later iteration
+     *                      was already asked for, in which case this one is
+     *                      skipped.
+     */
+    public boolean request(int iteration) {
+        int last;
+        do {
+            last = lastIteration.get();
+            if (iteration <= last) {
+                return false;
+            }
+        } while (!lastIteration.compareAndSet(last, iteration));
+
+        writer.execute(() -> export(iteration));
+        return true;
+    }
+
+    private void export(int iteration) {
+        PheromoneSnapshot snapshot = PheromoneSnapshot.of(iteration, pheromones);
+        try {
+            Files.createDirectories(directory);
+            snapshot.write(directory.resolve(String.format("pheromones_%d.bin", iteration)));
+        } catch (IOException ex) {
+            Logging.logError("Failed to write snapshot " + iteration + ": " + ex.getMessage());
+        }
+        visualizer.screenshot(directory.resolve(String.format("good_graph_frame_%d.png", iteration)).toString());
+    }
+
+    /**
+     * Writes the snapshots still pending and stops the background thread.
+     */
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+            Logging.logError("Gave up waiting on pending snapshots");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.LogGrpc;
+import DistributedRouting.grpc.NeighborsReply;
+import DistributedRouting.grpc.StepRequest;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client end of the bidirectional Step stream. Each call to {@link #exchange}
+ * sends one step and waits for the neighbors of the position it names, so an
+ * ant makes a single round trip per move over one long-lived call.
+ */
+class StepStream implements StreamObserver<NeighborsReply> {
+    private final BlockingQueue<NeighborsReply> replies = new LinkedBlockingQueue<>();
+    private final StreamObserver<StepRequest> requests;
+
+    private volatile Throwable error;
+    private volatile boolean completed;
+
+    StepStream(LogGrpc.LogStub stub) {
+        this.requests = stub.step(this);
+    }
+
+    /**
+     * Sends a step and blocks until its reply arrives.
+     *
+     * @param request   The step to send.
+     * @return          The neighbors of the position named in the request.
+     * @throws InterruptedException     Thrown if interrupted while waiting.
+     * @throws IllegalStateException    Thrown if the stream failed or was closed by the server.
+     */
+    NeighborsReply exchange(StepRequest request) throws InterruptedException {
+        requests.onNext(request);
+        while (true) {
+            NeighborsReply reply = replies.poll(1, TimeUnit.SECONDS);
+            if (reply != null) {
+                return reply;
+            }
+            if (error != null) {
+                throw new IllegalStateException("Step stream failed", error);
+            }
+            if (completed) {
+                throw new IllegalStateException("Step stream closed by server");
+            }
+        }
+    }
+
+    /**
+     * Half-closes the stream once the ant is done.
+     */
+    void close() {
+        requests.onCompleted();
+    }
+
+    @Override
+    public void onNext(NeighborsReply reply) {
+        replies.add(reply);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        error = t;
+    }
+
+    @Override
+    public void onCompleted() {
+        completed = true;
+    }
+}
@@ -0,0 +1,123 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.Adjacency;
+import DistributedRouting.grpc.SubscribeRequest;
+import DistributedRouting.grpc.TopologyGrpc;
+import DistributedRouting.grpc.TopologyUpdate;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.Logging;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Agent-side copy of the graph and its pheromone levels, kept up to date by
+ * a subscription to a {@link TopologyPublisher}. Levels decay locally from
+ * the tick of the last update, as they do on the controller. One cache can
+ * serve every agent of a process; it is read from agent threads while gRPC
+ * applies updates. After the graph changed, agents should read the graph
+ * before the pheromones, so that the store they get covers every edge.
+ */
+public class TopologyCache implements StreamObserver<TopologyUpdate> {
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private volatile RawGraph graph;
+    private volatile PheromoneStore pheromones;
+    private volatile int tick;
+    private volatile boolean stopped = false;
+
+    /**
+     * Subscribes to the topology of a controller.
+     *
+     * @param stub  Stub of the controller's Topology service.
+     * @return      A cache, filled once the first update arrives.
+     */
+    public static TopologyCache subscribe(TopologyGrpc.TopologyStub stub) {
+        TopologyCache cache = new TopologyCache();
+        stub.subscribe(SubscribeRequest.getDefaultInstance(), cache);
+        return cache;
+    }
+
+    /**
+     * Waits for the graph.
+     *
+     * @throws TimeoutException     Thrown if the graph did not arrive in time,
+     *                              or the subscription failed before it did.
+     */
+    public TopologyCache awaitReady(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!ready.await(timeout, unit) || graph == null) {
+            throw new TimeoutException("No topology received");
+        }
+        return this;
+    }
+
+    @Override
+    public void onNext(TopologyUpdate update) {
+        tick = update.getTick();
+        if (update.hasAdjacency()) {
+            Adjacency adjacency = update.getAdjacency();
+            int[] vertices = new int[adjacency.getVerticesCount()];
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = adjacency.getVertices(i);
+            }
+            int[] sources = new int[adjacency.getEdgeSourcesCount()];
+            int[] targets = new int[sources.length];
+            for (int e = 0; e < sources.length; e++) {
+                sources[e] = adjacency.getEdgeSources(e);
+                targets[e] = adjacency.getEdgeTargets(e);
+            }
+            // Indexed under the controller's ids, which a changed graph no longer derives from its edge set.
+            RawGraph built = RawGraph.fromEdges(adjacency.getSource(), adjacency.getDest(), true, vertices,
+                    sources, targets);
+            // The controller's store may have room for more edges than the graph has.
+            pheromones = new PheromoneStore(Math.max(built.numEdges(), update.getStatesCount()), 0,
+                    adjacency.getDecay(), () -> tick);
+            graph = built;
+        }
+        PheromoneStore store = pheromones;
+        if (update.getEdgeIdsCount() == 0) {
+            for (int e = 0; e < update.getStatesCount(); e++) {
+                store.restoreState(e, update.getStates(e));
+            }
+        } else {
+            for (int i = 0; i < update.getEdgeIdsCount(); i++) {
+                store.restoreState(update.getEdgeIds(i), update.getStates(i));
+            }
+        }
+        if (update.getStop()) {
+            stopped = true;
+        }
+        ready.countDown();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Logging.logError("Topology subscription failed: " + t.getMessage());
+        stopped = true;
+        ready.countDown();
+    }
+
+    @Override
+    public void onCompleted() {
+        stopped = true;
+        ready.countDown();
+    }
+
+    public RawGraph getGraph() {
+        return graph;
+    }
+
+    public PheromoneStore getPheromones() {
+        return pheromones;
+    }
+
+    /**
+     * @return  Whether agents should stop: the colony has converged, or the
+     *          subscription ended and the copy no longer follows the controller.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+}
@@ -0,0 +1,181 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.MutationGrpc;
+import DistributedRouting.grpc.MutationReply;
+import DistributedRouting.grpc.MutationRequest;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.Logging;
+import io.grpc.stub.StreamObserver;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Changes the graph of a running colony, e.g. to simulate a link failure.
+ * Every change builds a new {@link RawGraph}, one copy of the index per
+ * change, and hands that to the listeners. Each of them switches over on its own, so
+ * ants are never paused.
+ *
+ * Edge ids stay dense. An added edge starts at the initial level in the next
+ * slot of the pheromone store, and a removed edge's slot takes over the level
+ * of the last edge along with its id. A move racing a removal may therefore
+ * be credited once to the edge that took over its id. The store must be
+ * created with room for the edges that will be added. Anything else indexed
+ * by the edge ids of the initial graph, like a drawn graph or a move log,
+ * has to {@link #refuseChanges refuse} changes.
+ */
+public class TopologyMutator extends MutationGrpc.MutationImplBase {
+    private final PheromoneStore pheromones;
+    private final float initialLevel;
+    private final List<Consumer<RawGraph>> listeners = new CopyOnWriteArrayList<>();
+    private volatile RawGraph graph;
+    // Why changes are refused, or null if they are allowed.
+    private volatile String refusal;
+
+    /**
+     * @param graph         Graph the colony starts on.
+     * @param pheromones    Levels of the colony, with spare slots for added edges.
+     * @param initialLevel  Level an added edge starts at.
+     */
+    public TopologyMutator(RawGraph graph, PheromoneStore pheromones, float initialLevel) {
+        this.graph = graph;
+        this.pheromones = pheromones;
+        this.initialLevel = initialLevel;
+    }
+
+    /**
+     * Adds a listener, called with every changed graph on the thread that
+     * made the change.
+     */
+    public TopologyMutator addListener(Consumer<RawGraph> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Makes every later change fail with an IllegalStateException.
+     *
+     * @param reason    Message of the exceptions.
+     */
+    public TopologyMutator refuseChanges(String reason) {
+        refusal = reason;
+        return this;
+    }
+
+    public boolean acceptsChanges() {
+        return refusal == null;
+    }
+
+    public RawGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return  The id of the new edge.
+     * @throws IllegalArgumentException Thrown if the edge exists or an endpoint does not.
+     * @throws IllegalStateException    Thrown if changes are refused or the pheromone store has no free slot.
+     */
+    public synchronized int addEdge(int start, int end) {
+        checkAccepted();
+        RawGraph next = graph.withEdge(start, end);
+        int id = graph.numEdges();
+        if (id >= pheromones.size()) {
+            throw new IllegalStateException("No pheromone slot left for edge " + start + "-" + end);
+        }
+        pheromones.set(id, initialLevel);
+        publish(next);
+        return id;
+    }
+
+    /**
+     * @throws IllegalArgumentException Thrown if the edge does not exist.
+     * @throws IllegalStateException    Thrown if changes are refused.
+     */
+    public synchronized void removeEdge(int start, int end) {
+        checkAccepted();
+        int id = graph.edgeId(start, end);
+        RawGraph next = graph.withoutEdge(start, end);
+        int last = graph.numEdges() - 1;
+        if (id != last) {
+            pheromones.restoreState(id, pheromones.saveState(last));
+        }
+        publish(next);
+    }
+
+    /**
+     * @throws IllegalArgumentException Thrown if the vertex exists.
+     * @throws IllegalStateException    Thrown if changes are refused.
+     */
+    public synchronized void addVertex(int vertex) {
+        checkAccepted();
+        publish(graph.withVertex(vertex));
+    }
+
+    /**
+     * Removes a vertex together with its edges, as a single change.
+     *
+     * @return  Number of edges removed.
+     * @throws IllegalArgumentException Thrown if the vertex does not exist or is a terminal.
+     * @throws IllegalStateException    Thrown if changes are refused.
+     */
+    public synchronized int removeVertex(int vertex) {
+        checkAccepted();
+        RawGraph current = graph;
+        int[] newIds = current.edgeIdsWithoutVertex(vertex);
+        RawGraph next = current.withoutVertexAndEdges(vertex);
+        // Only edges past the new end move, into the slots of removed edges.
+        for (int e = next.numEdges(); e < current.numEdges(); e++) {
+            if (newIds[e] >= 0) {
+                pheromones.restoreState(newIds[e], pheromones.saveState(e));
+            }
+        }
+        publish(next);
+        return current.numEdges() - next.numEdges();
+    }
+
+    private void checkAccepted() {
+        String reason = refusal;
+        if (reason != null) {
+            throw new IllegalStateException(reason);
+        }
+    }
+
+    private void publish(RawGraph next) {
+        graph = next;
+        for (Consumer<RawGraph> listener : listeners) {
+            listener.accept(next);
+        }
+    }
+
+    @Override
+    public void mutate(MutationRequest req, StreamObserver<MutationReply> responseObserver) {
+        MutationReply.Builder reply = MutationReply.newBuilder().setSuccess(true);
+        try {
+            MutationRequest.Kind kind = req.getKind();
+            if (kind == MutationRequest.Kind.ADD_EDGE) {
+                reply.setEdgeId(addEdge(req.getSource(), req.getTarget()));
+            } else if (kind == MutationRequest.Kind.REMOVE_EDGE) {
+                removeEdge(req.getSource(), req.getTarget());
+            } else if (kind == MutationRequest.Kind.ADD_VERTEX) {
+                addVertex(req.getVertex());
+            } else if (kind == MutationRequest.Kind.REMOVE_VERTEX) {
+                removeVertex(req.getVertex());
+            } else {
+                throw new IllegalArgumentException("Unknown change " + kind);
+            }
+            Logging.logService("Applied " + req.getKind() + ", the graph now has "
+                    + graph.numEdges() + " edges");
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            Logging.logError("Refused " + req.getKind() + ": " + ex.getMessage());
+            reply.setSuccess(false).setError(ex.getMessage());
+        }
+        RawGraph current = graph;
+        responseObserver.onNext(reply
+                .setNumVertices(current.numVertices())
+                .setNumEdges(current.numEdges())
+                .build());
+        responseObserver.onCompleted();
+    }
+}
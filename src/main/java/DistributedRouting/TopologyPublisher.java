@@ -0,0 +1,208 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.Adjacency;
+import DistributedRouting.grpc.SubscribeRequest;
+import DistributedRouting.grpc.TopologyGrpc;
+import DistributedRouting.grpc.TopologyUpdate;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.util.Logging;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the Topology service. A subscriber first gets the whole graph and
+ * the state of every edge, then, every period, the edges whose level moved
+ * by more than a threshold since they were last sent. Subscribers keep their
+ * own {@link TopologyCache} and pick moves from it, so no neighbor list is
+ * built per step.
+ *
+ * Only deposits change what an ant would pick: evaporation scales every level
+ * by the same factor, and subscribers apply it themselves from the tick each
+ * state was written at. An edge is therefore only sent again after pheromone
+ * was deposited on it. All subscribers get the same updates.
+ *
+ * After the graph changed at runtime, see {@link TopologyMutator}, the next
+ * update holds the whole graph and every state again.
+ */
+public class TopologyPublisher extends TopologyGrpc.TopologyImplBase {
+    private final PheromoneStore pheromones;
+    private final ConvergenceMonitor monitor;
+    private final float threshold;
+    private final float decay;
+    private Adjacency adjacency;
+    // Whether the next update must resend the graph.
+    private boolean resync = false;
+
+    // State of every edge as last sent, and the state read this period.
+    private final long[] published;
+    private final long[] current;
+    private final List<StreamObserver<TopologyUpdate>> subscribers = new ArrayList<>();
+    private boolean stopSent = false;
+    private final LongAdder publishedEdges = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param graph         Graph the colony walks on.
+     * @param pheromones    Levels of the colony.
+     * @param monitor       Tells when subscribers should stop.
+     * @param threshold     Smallest change of a level, relative to the larger
+     *                      of its old and new values, that is sent.
+     */
+    public TopologyPublisher(RawGraph graph, PheromoneStore pheromones, ConvergenceMonitor monitor,
+                             float threshold) {
+        this.pheromones = pheromones;
+        this.monitor = monitor;
+        this.threshold = threshold;
+        this.decay = pheromones.getDecay();
+        this.adjacency = adjacency(graph, decay);
+
+        published = new long[pheromones.size()];
+        current = new long[pheromones.size()];
+        pheromones.saveState(0, LongBuffer.wrap(published));
+    }
+
+    private static Adjacency adjacency(RawGraph graph, float decay) {
+        Adjacency.Builder builder = Adjacency.newBuilder()
+                .setSource(graph.getSource())
+                .setDest(graph.getDest())
+                .setDecay(decay);
+        for (int vertex : graph.getVertices()) {
+            builder.addVertices(vertex);
+        }
+        for (int e = 0; e < graph.numEdges(); e++) {
+            builder.addEdgeSources(graph.edgeSource(e)).addEdgeTargets(graph.edgeTarget(e));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Resends the whole graph with the next update.
+     */
+    public synchronized void topologyChanged(RawGraph graph) {
+        adjacency = adjacency(graph, decay);
+        resync = true;
+    }
+
+    /**
+     * Publishes once every period from a thread of its own.
+     */
+    public TopologyPublisher start(long period, TimeUnit unit) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "topology-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::publish, period, period, unit);
+        return this;
+    }
+
+    @Override
+    public synchronized void subscribe(SubscribeRequest req, StreamObserver<TopologyUpdate> responseObserver) {
+        TopologyUpdate.Builder update = TopologyUpdate.newBuilder()
+                .setAdjacency(adjacency)
+                .setTick(pheromones.currentTick())
+                .setStop(stopSent);
+        // Without edge ids, the states are those of every edge in id order.
+        for (long state : published) {
+            update.addStates(state);
+        }
+        responseObserver.onNext(update.build());
+        subscribers.add(responseObserver);
+    }
+
+    /**
+     * Sends the edges that changed beyond the threshold to every subscriber.
+     *
+     * @return  Number of edges sent.
+     */
+    synchronized int publish() {
+        int now = pheromones.currentTick();
+        pheromones.saveState(0, LongBuffer.wrap(current));
+        TopologyUpdate.Builder update = TopologyUpdate.newBuilder().setTick(now);
+        if (resync) {
+            resync = false;
+            update.setAdjacency(adjacency);
+            for (int e = 0; e < current.length; e++) {
+                update.addStates(current[e]);
+            }
+            System.arraycopy(current, 0, published, 0, current.length);
+            stopSent = monitor.isConverged();
+            publishedEdges.add(current.length);
+            return send(update.setStop(stopSent).build(), current.length);
+        }
+        for (int e = 0; e < current.length; e++) {
+            if (current[e] == published[e]) {
+                continue;
+            }
+            float level = pheromones.level(current[e]);
+            float old = pheromones.level(published[e]);
+            // Smaller changes stay pending and add up until they are sent.
+            if (Math.abs(level - old) > threshold * Math.max(level, old)) {
+                update.addEdgeIds(e).addStates(current[e]);
+                published[e] = current[e];
+            }
+        }
+        boolean stop = monitor.isConverged();
+        int count = update.getEdgeIdsCount();
+        if (count == 0 && stop == stopSent) {
+            return 0;
+        }
+        stopSent = stop;
+        publishedEdges.add(count);
+        return send(update.setStop(stop).build(), count);
+    }
+
+    private int send(TopologyUpdate built, int count) {
+        for (Iterator<StreamObserver<TopologyUpdate>> it = subscribers.iterator(); it.hasNext(); ) {
+            try {
+                it.next().onNext(built);
+            } catch (StatusRuntimeException ex) {
+                // The subscriber went away.
+                it.remove();
+            }
+        }
+        return count;
+    }
+
+    public synchronized int getSubscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return  Number of edge states sent since the start, counted once per update.
+     */
+    public long getPublishedEdges() {
+        return publishedEdges.sum();
+    }
+
+    /**
+     * Stops publishing and ends every subscription.
+     */
+    public void close() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        synchronized (this) {
+            for (StreamObserver<TopologyUpdate> subscriber : subscribers) {
+                try {
+                    subscriber.onCompleted();
+                } catch (StatusRuntimeException ex) {
+                    Logging.logDebug("Subscriber already gone: " + ex.getMessage());
+                }
+            }
+            subscribers.clear();
+        }
+    }
+}
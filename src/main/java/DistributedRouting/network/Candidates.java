@@ -0,0 +1,58 @@
+package DistributedRouting.network;
+
+import java.util.Arrays;
+
+/**
+ * Reusable reply to a step: the vertices an ant may move to next and the
+ * pheromone level of the edge to each, plus whether the ant should stop.
+ * Grows to the largest degree seen and is then reused without allocating.
+ */
+public class Candidates {
+    private int[] nodes = new int[8];
+    private float[] levels = new float[8];
+    private int count = 0;
+    private boolean stop = false;
+
+    /**
+     * Empties the list, keeping its capacity.
+     */
+    public void clear() {
+        count = 0;
+        stop = false;
+    }
+
+    public void add(int node, float level) {
+        if (count == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * count);
+            levels = Arrays.copyOf(levels, 2 * count);
+        }
+        nodes[count] = node;
+        levels[count++] = level;
+    }
+
+    /**
+     * Candidate vertices, valid up to {@link #count()}.
+     */
+    public int[] nodes() {
+        return nodes;
+    }
+
+    /**
+     * Levels of the edges to the candidates, valid up to {@link #count()}.
+     */
+    public float[] levels() {
+        return levels;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isStop() {
+        return stop;
+    }
+
+    public void setStop(boolean stop) {
+        this.stop = stop;
+    }
+}
@@ -0,0 +1,231 @@
+package DistributedRouting.network;
+
+import DistributedRouting.util.Logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves steps over plain TCP from a single selector thread, as a lighter
+ * alternative to the gRPC Log service. Frames are fixed-width little-endian
+ * records, so nothing is parsed beyond reading a few ints:
+ *
+ * <pre>
+ * request (24 bytes): antId, previousVertex, currentVertex, modifier,
+ *                     saveIteration, unused
+ * reply:              count, flags, then count times (node, level)
+ * </pre>
+ *
+ * Every connection owns direct buffers that are allocated once and reused,
+ * and a reply is written with one gathering write of its header and body.
+ * A client may pipeline requests; they are answered in order, and reading
+ * from a connection pauses while its previous reply is still being written.
+ */
+public class FramedServer implements Runnable, Closeable {
+    static final int REQUEST_BYTES = 24;
+    static final int HEADER_BYTES = 8;
+    static final int CANDIDATE_BYTES = 8;
+    static final int FLAG_STOP = 1;
+
+    // Requests buffered per connection before they are served.
+    private static final int PIPELINE_DEPTH = 16;
+
+    private final StepHandler handler;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    // Only used by the selector thread.
+    private final Candidates candidates = new Candidates();
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * State of one connection.
+     */
+    private static class Session {
+        final ByteBuffer in = ByteBuffer.allocateDirect(PIPELINE_DEPTH * REQUEST_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer[] out = {
+                ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN),
+                ByteBuffer.allocateDirect(16 * CANDIDATE_BYTES).order(ByteOrder.LITTLE_ENDIAN)};
+        boolean writing = false;
+    }
+
+    /**
+     * @param handler       Handles every request, on the selector thread.
+     * @param port          Port to listen on, or 0 for any free port.
+     * @throws IOException  Thrown if the port cannot be bound.
+     */
+    public FramedServer(StepHandler handler, int port) throws IOException {
+        this.handler = handler;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Starts serving from a daemon thread.
+     */
+    public FramedServer start() {
+        thread = new Thread(this, "framed-server");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException ex) {
+                Logging.logError("Framed server failed to select: " + ex.getMessage());
+                return;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    } else if (key.isWritable()) {
+                        write(key);
+                    }
+                } catch (IOException ex) {
+                    Logging.logDebug("Closing framed connection: " + ex.getMessage());
+                    closeQuietly(key);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Session());
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        if (((SocketChannel) key.channel()).read(session.in) < 0) {
+            closeQuietly(key);
+            return;
+        }
+        serve(key, session);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        if (flush(key, session)) {
+            key.interestOps(SelectionKey.OP_READ);
+            serve(key, session);
+        }
+    }
+
+    /**
+     * Answers the complete requests buffered on a connection, until one of
+     * the replies cannot be written at once.
+     */
+    private void serve(SelectionKey key, Session session) throws IOException {
+        ByteBuffer in = session.in.flip();
+        while (!session.writing && in.remaining() >= REQUEST_BYTES) {
+            int antId = in.getInt();
+            int previousVertex = in.getInt();
+            int currentVertex = in.getInt();
+            float modifier = in.getFloat();
+            int saveIteration = in.getInt();
+            in.getInt();
+            handler.step(antId, previousVertex, currentVertex, modifier, saveIteration, candidates);
+            encode(session);
+            if (!flush(key, session)) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+        in.compact();
+    }
+
+    private void encode(Session session) {
+        int count = candidates.count();
+        ByteBuffer body = session.out[1];
+        if (body.capacity() < count * CANDIDATE_BYTES) {
+            body = ByteBuffer.allocateDirect(2 * count * CANDIDATE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            session.out[1] = body;
+        }
+        body.clear();
+        int[] nodes = candidates.nodes();
+        float[] levels = candidates.levels();
+        for (int i = 0; i < count; i++) {
+            body.putInt(nodes[i]).putFloat(levels[i]);
+        }
+        body.flip();
+        session.out[0].clear().putInt(count).putInt(candidates.isStop() ? FLAG_STOP : 0).flip();
+    }
+
+    /**
+     * @return  Whether the pending reply was written out completely.
+     */
+    private boolean flush(SelectionKey key, Session session) throws IOException {
+        ((SocketChannel) key.channel()).write(session.out);
+        session.writing = session.out[0].hasRemaining() || session.out[1].hasRemaining();
+        return !session.writing;
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ex) {
+            Logging.logDebug("Failed to close framed connection: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * @return  True once the selector thread has exited, so no more requests are handled.
+     */
+    public boolean isStopped() {
+        return thread == null || !thread.isAlive();
+    }
+
+    /**
+     * Stops serving and closes every connection.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key);
+        }
+        selector.close();
+        serverChannel.close();
+    }
+}
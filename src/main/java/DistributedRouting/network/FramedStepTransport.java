@@ -0,0 +1,76 @@
+package DistributedRouting.network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Client of a {@link FramedServer}. Each step is one fixed-width request and
+ * one reply over a blocking socket, encoded in direct buffers that are
+ * reused from step to step.
+ */
+public class FramedStepTransport implements StepTransport {
+    private final SocketChannel channel;
+    private final ByteBuffer request = ByteBuffer.allocateDirect(FramedServer.REQUEST_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer header = ByteBuffer.allocateDirect(FramedServer.HEADER_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer body = ByteBuffer.allocateDirect(16 * FramedServer.CANDIDATE_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @param address       Address of the server.
+     * @throws IOException  Thrown if the server cannot be reached.
+     */
+    public FramedStepTransport(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    @Override
+    public void step(int antId, int previousVertex, int currentVertex, float modifier, int saveIteration,
+                     Candidates out) throws IOException {
+        request.clear()
+                .putInt(antId)
+                .putInt(previousVertex)
+                .putInt(currentVertex)
+                .putFloat(modifier)
+                .putInt(saveIteration)
+                .putInt(0)
+                .flip();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+
+        readFully(header.clear());
+        int count = header.getInt(0);
+        int flags = header.getInt(4);
+        if (body.capacity() < count * FramedServer.CANDIDATE_BYTES) {
+            body = ByteBuffer.allocateDirect(2 * count * FramedServer.CANDIDATE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        readFully(body.clear().limit(count * FramedServer.CANDIDATE_BYTES));
+        body.flip();
+        out.clear();
+        for (int i = 0; i < count; i++) {
+            out.add(body.getInt(), body.getFloat());
+        }
+        out.setStop((flags & FramedServer.FLAG_STOP) != 0);
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Framed server closed the connection");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
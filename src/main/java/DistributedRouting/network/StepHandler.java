@@ -0,0 +1,19 @@
+package DistributedRouting.network;
+
+/**
+ * Server side of a step: applies the move an ant made and lists the moves
+ * available from where it now is.
+ */
+public interface StepHandler {
+
+    /**
+     * @param antId             Ant making the step.
+     * @param previousVertex    Vertex the ant left, or -1 if it has not moved yet.
+     * @param currentVertex     Vertex the ant is on.
+     * @param modifier          Modifier of the deposit for the move.
+     * @param saveIteration     When non-zero, also save the graph for this iteration.
+     * @param out               Cleared and filled with the next moves of the ant.
+     */
+    void step(int antId, int previousVertex, int currentVertex, float modifier, int saveIteration,
+              Candidates out);
+}
@@ -0,0 +1,26 @@
+package DistributedRouting.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Client side of a step, carried to a {@link StepHandler} by some transport.
+ * Each instance serves one ant and is not thread-safe.
+ */
+public interface StepTransport extends Closeable {
+
+    /**
+     * Sends a step and waits for its reply.
+     *
+     * @param antId             Ant making the step.
+     * @param previousVertex    Vertex the ant left, or -1 on its first step,
+     *                          which reports no move.
+     * @param currentVertex     Vertex the ant is on.
+     * @param modifier          Modifier of the deposit for the move.
+     * @param saveIteration     When non-zero, also save the graph for this iteration.
+     * @param out               Filled with the next moves of the ant.
+     * @throws IOException      Thrown if the step could not be delivered or answered.
+     */
+    void step(int antId, int previousVertex, int currentVertex, float modifier, int saveIteration,
+              Candidates out) throws IOException;
+}
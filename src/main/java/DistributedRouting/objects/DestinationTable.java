@@ -0,0 +1,128 @@
+package DistributedRouting.objects;
+
+import java.util.Arrays;
+
+/**
+ * Pheromone levels kept per (destination, edge), for colonies whose ants head
+ * for different destinations. Every destination has a row of one float per
+ * edge, and all rows share one dense array, so routing to D destinations over
+ * E edges takes 4·D·E bytes: half of what D {@link PheromoneStore}s would.
+ *
+ * Evaporation scales every level by the same factor, so it is kept as one
+ * scale shared by all entries instead of being applied to each of them.
+ * Entries are stored divided by the scale, and {@link #decay()} only shrinks
+ * the scale; once it gets small, it is multiplied into the entries and reset
+ * to 1. Levels saturate at 1, as in {@link PheromoneStore}.
+ *
+ * Not thread-safe: meant for a single-threaded in-process engine.
+ */
+public class DestinationTable {
+    // Below this the scale is folded back into the entries.
+    private static final double MIN_SCALE = 1e-6;
+
+    private final int numEdges;
+    private final int[] destinations;
+    // Row of every vertex id that is a destination, -1 for the others.
+    private final int[] rows;
+    private final float[] levels;
+    private final float decay;
+    private double scale = 1;
+
+    /**
+     * Creates a table with every level the same.
+     *
+     * @param numEdges      Number of edges, normally {@link RawGraph#numEdges()}.
+     * @param destinations  Distinct destination vertices, one row each, in row order.
+     * @param initialLevel  Level every entry starts at.
+     * @param decay         Factor levels are scaled by every {@link #decay()}.
+     */
+    public DestinationTable(int numEdges, int[] destinations, float initialLevel, float decay) {
+        if ((long) numEdges * destinations.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("%d destinations of %d edges do not fit in a table",
+                    destinations.length, numEdges));
+        }
+        this.numEdges = numEdges;
+        this.destinations = destinations.clone();
+        this.decay = decay;
+
+        int maxVertex = -1;
+        for (int destination : destinations) {
+            maxVertex = Math.max(maxVertex, destination);
+        }
+        rows = new int[maxVertex + 1];
+        Arrays.fill(rows, -1);
+        for (int row = 0; row < destinations.length; row++) {
+            if (rows[destinations[row]] >= 0) {
+                throw new IllegalArgumentException("Destination " + destinations[row] + " appears twice");
+            }
+            rows[destinations[row]] = row;
+        }
+        levels = new float[numEdges * destinations.length];
+        Arrays.fill(levels, initialLevel);
+    }
+
+    public int numEdges() {
+        return numEdges;
+    }
+
+    public int numDestinations() {
+        return destinations.length;
+    }
+
+    public int getDestination(int row) {
+        return destinations[row];
+    }
+
+    /**
+     * @param destination   A vertex.
+     * @return              The row of the vertex, or -1 if it is no destination.
+     */
+    public int row(int destination) {
+        return (destination >= 0 && destination < rows.length) ? rows[destination] : -1;
+    }
+
+    public float getDecay() {
+        return decay;
+    }
+
+    public float get(int row, int edgeId) {
+        return (float) (levels[row * numEdges + edgeId] * scale);
+    }
+
+    public void set(int row, int edgeId, float level) {
+        levels[row * numEdges + edgeId] = (float) (level / scale);
+    }
+
+    /**
+     * Adds pheromone to an edge of one row. The increment is only applied if
+     * it would not push the level past 1.
+     *
+     * @param row           Row of the destination the deposit is for.
+     * @param edgeId        Edge to reinforce.
+     * @param increment     Amount of pheromone to add.
+     * @return              The level of the entry after the update.
+     */
+    public float deposit(int row, int edgeId, float increment) {
+        int index = row * numEdges + edgeId;
+        float current = (float) (levels[index] * scale);
+        if (current > 1 - increment) {
+            return current;
+        }
+        float updated = current + increment;
+        levels[index] = (float) (updated / scale);
+        return updated;
+    }
+
+    /**
+     * Scales every level by the decay factor.
+     */
+    public void decay() {
+        scale *= decay;
+        if (scale < MIN_SCALE) {
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = (float) (levels[i] * scale);
+            }
+            scale = 1;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package DistributedRouting.objects;
+
+import DistributedRouting.util.Logging;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+/**
+ * Reads plain-text edge lists into a {@link RawGraph}. The input is scanned
+ * byte by byte, so no String is created per line. Understood formats:
+ * <ul>
+ *     <li>SNAP and similar: one "u v" pair per line, '#' or '%' comments.</li>
+ *     <li>DIMACS: "a u v w" or "e u v" lines, with 'c' comments and a 'p' line.</li>
+ * </ul>
+ * Anything after the first two numbers of a line, such as a weight, is ignored.
+ */
+public class EdgeListImporter {
+
+    /**
+     * Parses an edge list.
+     *
+     * @param path          Edge list to read.
+     * @param source        Source vertex of the routing problem.
+     * @param dest          Destination vertex of the routing problem.
+     * @return              The undirected graph over every vertex that appears in the list.
+     * @throws IOException  Thrown if the file cannot be read or is malformed.
+     */
+    public static RawGraph importFile(Path path, int source, int dest) throws IOException {
+        RawGraph.Builder builder = new RawGraph.Builder(source, dest);
+        BitSet seen = new BitSet();
+        seen.set(source);
+        seen.set(dest);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            Scanner scanner = new Scanner(in);
+            long line = 0;
+            while (scanner.hasMore()) {
+                line++;
+                int first = scanner.skipBlanks();
+                if (first == '\n') continue;
+                if (first == '#' || first == '%' || first == 'c' || first == 'p') {
+                    scanner.skipLine();
+                    continue;
+                }
+                if (first == 'a' || first == 'e') {
+                    scanner.next();
+                }
+                int u = scanner.readInt(line);
+                int v = scanner.readInt(line);
+                scanner.skipLine();
+                builder.addEdge(u, v);
+                seen.set(u);
+                seen.set(v);
+            }
+        }
+        for (int vertex = seen.nextSetBit(0); vertex >= 0; vertex = seen.nextSetBit(vertex + 1)) {
+            builder.addVertex(vertex);
+        }
+        return builder.buildUndirected();
+    }
+
+    /**
+     * Converts an edge list into a {@link GraphFile}.
+     *
+     * @param args  edge list, output file, source vertex, destination vertex.
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        RawGraph graph = importFile(Path.of(args[0]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        GraphFile.write(graph, Path.of(args[1]));
+        Logging.logInfo(String.format("Wrote %d vertices and %d edges to %s in %.2fs",
+                graph.numVertices(), graph.numEdges(), args[1], (System.nanoTime() - start) / 1e9));
+    }
+
+    /**
+     * Minimal tokenizer over a byte stream.
+     */
+    private static class Scanner {
+        private final InputStream in;
+        private int current;
+
+        Scanner(InputStream in) throws IOException {
+            this.in = in;
+            this.current = in.read();
+        }
+
+        boolean hasMore() {
+            return current >= 0;
+        }
+
+        int next() throws IOException {
+            current = in.read();
+            return current;
+        }
+
+        /**
+         * Skips spaces and tabs, stopping on a newline, which is consumed.
+         *
+         * @return  The first other character, or '\n' for an empty line.
+         */
+        int skipBlanks() throws IOException {
+            while (current == ' ' || current == '\t' || current == '\r') {
+                next();
+            }
+            if (current == '\n' || current < 0) {
+                next();
+                return '\n';
+            }
+            return current;
+        }
+
+        void skipLine() throws IOException {
+            while (current >= 0 && current != '\n') {
+                next();
+            }
+            next();
+        }
+
+        int readInt(long line) throws IOException {
+            while (current == ' ' || current == '\t') {
+                next();
+            }
+            if (current < '0' || current > '9') {
+                throw new IOException("Expected a vertex id on line " + line);
+            }
+            long value = 0;
+            while (current >= '0' && current <= '9') {
+                value = value * 10 + (current - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw new IOException("Vertex id too large on line " + line);
+                }
+                next();
+            }
+            return (int) value;
+        }
+    }
+}
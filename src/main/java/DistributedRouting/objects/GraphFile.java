@@ -0,0 +1,199 @@
+package DistributedRouting.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary on-disk format of a {@link RawGraph}: a fixed header followed by the
+ * CSR arrays as little-endian ints. {@link #map} gives a {@link MappedGraph}
+ * that reads the arrays straight from the mapped file, with no parsing and no
+ * copying, so processes mapping the same file share one page-cached copy.
+ * {@link #read} bulk-copies the mapped arrays into a {@link RawGraph}.
+ *
+ * <pre>
+ * header (64 bytes): magic, version, flags, source, dest, maxDegree,
+ *                    numVertices, numEdges, offsetsLength, neighborsLength
+ * vertices[numVertices]
+ * edgeSources[numEdges]
+ * edgeTargets[numEdges]
+ * offsets[offsetsLength]
+ * neighbors[neighborsLength]
+ * edgeIds[neighborsLength]
+ * </pre>
+ */
+public class GraphFile {
+    private static final int MAGIC = 0x52475246; // "RGRF"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int FLAG_UNDIRECTED = 1;
+
+    /**
+     * Writes a graph.
+     *
+     * @param graph         Graph to write.
+     * @param path          File to write to, replaced if it exists.
+     * @throws IOException  Thrown if the file cannot be written.
+     */
+    public static void write(RawGraph graph, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(graph, channel);
+        }
+    }
+
+    /**
+     * Writes a graph at the current position of a channel, so that it can be
+     * embedded in a larger file.
+     *
+     * @param graph         Graph to write.
+     * @param channel       Channel to write to.
+     * @return              Number of bytes written, {@link #sizeOf} the graph.
+     * @throws IOException  Thrown if the channel cannot be written.
+     */
+    public static long write(RawGraph graph, FileChannel channel) throws IOException {
+        IntBuffer[] sections = {graph.vertexBuffer(), graph.edgeSourceBuffer(), graph.edgeTargetBuffer(),
+                graph.offsetBuffer(), graph.neighborBuffer(), graph.edgeIdBuffer()};
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION)
+                .putInt(graph.isUndirected() ? FLAG_UNDIRECTED : 0)
+                .putInt(graph.getSource()).putInt(graph.getDest()).putInt(graph.maxDegree())
+                .putInt(sections[0].limit()).putInt(sections[1].limit())
+                .putInt(sections[3].limit()).putInt(sections[4].limit());
+        header.clear();
+        writeFully(channel, header);
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        for (IntBuffer section : sections) {
+            section.rewind();
+            while (section.hasRemaining()) {
+                IntBuffer view = chunk.clear().asIntBuffer();
+                int count = Math.min(view.remaining(), section.remaining());
+                view.put(section.slice(section.position(), count));
+                section.position(section.position() + count);
+                chunk.limit(4 * count);
+                writeFully(channel, chunk);
+            }
+        }
+        return sizeOf(graph);
+    }
+
+    /**
+     * @return  Number of bytes the graph takes in a file.
+     */
+    public static long sizeOf(RawGraph graph) {
+        return HEADER_BYTES + 4L * (graph.vertexBuffer().limit() + graph.edgeSourceBuffer().limit()
+                + graph.edgeTargetBuffer().limit() + graph.offsetBuffer().limit()
+                + graph.neighborBuffer().limit() + graph.edgeIdBuffer().limit());
+    }
+
+    /**
+     * Maps a graph written by {@link #write}. Nothing is copied: the graph
+     * reads straight from the file, which must not be changed while it is
+     * mapped, and stays valid after the file is closed.
+     *
+     * @param path          File to map.
+     * @return              A read-only view of the graph.
+     * @throws IOException  Thrown if the file cannot be read or is not a graph file.
+     */
+    public static MappedGraph map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, 0, true);
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #write} onto the heap.
+     *
+     * @param path          File to read.
+     * @return              The graph.
+     * @throws IOException  Thrown if the file cannot be read or is not a graph file.
+     */
+    public static RawGraph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, 0, true).copy();
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #write(RawGraph, FileChannel)} at some
+     * position of a channel onto the heap. The graph holds no reference to
+     * the channel.
+     *
+     * @param channel       Channel to read from.
+     * @param start         Position the graph starts at.
+     * @return              The graph.
+     * @throws IOException  Thrown if the channel cannot be read or holds no graph there.
+     */
+    public static RawGraph read(FileChannel channel, long start) throws IOException {
+        return map(channel, start, false).copy();
+    }
+
+    /**
+     * @param wholeFile     Whether the graph must end where the channel does.
+     */
+    private static MappedGraph map(FileChannel channel, long start, boolean wholeFile) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, start + header.position()) < 0) {
+                throw new IOException("Truncated graph at " + start);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("No graph at " + start);
+        }
+        boolean undirected = (header.getInt() & FLAG_UNDIRECTED) != 0;
+        int source = header.getInt();
+        int dest = header.getInt();
+        int maxDegree = header.getInt();
+        int numVertices = header.getInt();
+        int numEdges = header.getInt();
+        int offsetsLength = header.getInt();
+        int neighborsLength = header.getInt();
+        long end = start + HEADER_BYTES
+                + 4L * (numVertices + 2L * numEdges + offsetsLength + 2L * neighborsLength);
+        if (end > channel.size()) {
+            throw new IOException("Truncated graph at " + start);
+        }
+        if (wholeFile && end != channel.size()) {
+            throw new IOException("Graph file has the wrong size");
+        }
+
+        long position = start + HEADER_BYTES;
+        IntBuffer vertices = mapSection(channel, position, numVertices);
+        position += 4L * numVertices;
+        IntBuffer edgeSources = mapSection(channel, position, numEdges);
+        position += 4L * numEdges;
+        IntBuffer edgeTargets = mapSection(channel, position, numEdges);
+        position += 4L * numEdges;
+        IntBuffer offsets = mapSection(channel, position, offsetsLength);
+        position += 4L * offsetsLength;
+        IntBuffer neighbors = mapSection(channel, position, neighborsLength);
+        position += 4L * neighborsLength;
+        IntBuffer edgeIds = mapSection(channel, position, neighborsLength);
+
+        return new MappedGraph(source, dest, undirected, maxDegree, vertices, edgeSources, edgeTargets,
+                offsets, neighbors, edgeIds);
+    }
+
+    /**
+     * Each section gets its own mapping, so only a single section is bound by
+     * the 2GB limit of a MappedByteBuffer.
+     */
+    private static IntBuffer mapSection(FileChannel channel, long position, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * length)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
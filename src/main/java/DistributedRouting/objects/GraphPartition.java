@@ -0,0 +1,72 @@
+package DistributedRouting.objects;
+
+/**
+ * Splits the vertices of a graph between shards, vertex v going to shard
+ * v mod numShards. A shard owns its vertices and every edge touching one of
+ * them, so an edge whose endpoints belong to different shards, a cut edge,
+ * is held by both.
+ */
+public class GraphPartition {
+    private final int shardId;
+    private final int numShards;
+    private final RawGraph local;
+
+    /**
+     * @param graph     The whole graph.
+     * @param shardId   Shard this partition is for, in [0, numShards).
+     * @param numShards Number of shards.
+     */
+    public GraphPartition(RawGraph graph, int shardId, int numShards) {
+        if (shardId < 0 || shardId >= numShards) {
+            throw new IllegalArgumentException(String.format("No shard %d of %d", shardId, numShards));
+        }
+        this.shardId = shardId;
+        this.numShards = numShards;
+
+        RawGraph.Builder builder = new RawGraph.Builder(graph.getSource(), graph.getDest());
+        for (int vertex : graph.getVertices()) {
+            if (!owns(vertex)) continue;
+            builder.addVertex(vertex);
+            for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+                builder.addEdge(vertex, graph.neighborAt(i));
+            }
+        }
+        local = graph.isUndirected() ? builder.buildUndirected() : builder.build();
+    }
+
+    public static int owner(int vertex, int numShards) {
+        return Math.floorMod(vertex, numShards);
+    }
+
+    public int owner(int vertex) {
+        return owner(vertex, numShards);
+    }
+
+    public boolean owns(int vertex) {
+        return owner(vertex) == shardId;
+    }
+
+    /**
+     * Whether a local edge is shared with another shard.
+     */
+    public boolean isCut(int localEdgeId) {
+        return !owns(local.edgeSource(localEdgeId)) || !owns(local.edgeTarget(localEdgeId));
+    }
+
+    /**
+     * The owned vertices and their edges, with the vertex ids of the whole
+     * graph but edge ids of their own. Vertices of other shards only appear
+     * as the far end of cut edges.
+     */
+    public RawGraph getLocalGraph() {
+        return local;
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public int getNumShards() {
+        return numShards;
+    }
+}
@@ -0,0 +1,144 @@
+package DistributedRouting.objects;
+
+import java.nio.IntBuffer;
+
+/**
+ * Read-only view of a graph in a {@link GraphFile}. The CSR arrays stay in
+ * the mapped file instead of being copied onto the heap, so opening a graph
+ * costs no parsing and no copying, and processes mapping the same file share
+ * one page-cached copy. Queries mirror those of {@link RawGraph}; use
+ * {@link #copy} for a graph that can be changed or handed to an engine.
+ */
+public class MappedGraph {
+    private final int source;
+    private final int dest;
+    private final boolean undirected;
+    private final int maxDegree;
+
+    private final IntBuffer vertices;
+    private final IntBuffer edgeSources;
+    private final IntBuffer edgeTargets;
+    private final IntBuffer offsets;
+    private final IntBuffer neighbors;
+    private final IntBuffer edgeIds;
+
+    MappedGraph(int source, int dest, boolean undirected, int maxDegree, IntBuffer vertices, IntBuffer edgeSources,
+                IntBuffer edgeTargets, IntBuffer offsets, IntBuffer neighbors, IntBuffer edgeIds) {
+        this.source = source;
+        this.dest = dest;
+        this.undirected = undirected;
+        this.maxDegree = maxDegree;
+        this.vertices = vertices;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.edgeIds = edgeIds;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getDest() {
+        return dest;
+    }
+
+    public int numVertices() {
+        return vertices.limit();
+    }
+
+    public int numEdges() {
+        return edgeSources.limit();
+    }
+
+    public boolean isUndirected() {
+        return undirected;
+    }
+
+    public int edgeSource(int edgeId) {
+        return edgeSources.get(edgeId);
+    }
+
+    public int edgeTarget(int edgeId) {
+        return edgeTargets.get(edgeId);
+    }
+
+    /**
+     * @see RawGraph#degree
+     */
+    public int degree(int vertex) {
+        if (vertex < 0 || vertex >= offsets.limit() - 1) {
+            return 0;
+        }
+        return offsets.get(vertex + 1) - offsets.get(vertex);
+    }
+
+    public int maxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * @see RawGraph#neighborsStart
+     */
+    public int neighborsStart(int vertex) {
+        if (vertex < 0 || vertex >= offsets.limit() - 1) {
+            return 0;
+        }
+        return offsets.get(vertex);
+    }
+
+    /**
+     * @see RawGraph#neighborsEnd
+     */
+    public int neighborsEnd(int vertex) {
+        if (vertex < 0 || vertex >= offsets.limit() - 1) {
+            return 0;
+        }
+        return offsets.get(vertex + 1);
+    }
+
+    public int neighborAt(int index) {
+        return neighbors.get(index);
+    }
+
+    public int edgeIdAt(int index) {
+        return edgeIds.get(index);
+    }
+
+    /**
+     * @see RawGraph#edgeId
+     */
+    public int edgeId(int start, int end) {
+        int low = neighborsStart(start);
+        int high = neighborsEnd(start) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int neighbor = neighbors.get(mid);
+            if (neighbor < end) {
+                low = mid + 1;
+            } else if (neighbor > end) {
+                high = mid - 1;
+            } else {
+                return edgeIds.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the graph onto the heap. The copy does not depend on the file.
+     *
+     * @return  A graph with the same vertices, edges and edge ids.
+     */
+    public RawGraph copy() {
+        return new RawGraph(source, dest, undirected, toArray(vertices), toArray(edgeSources),
+                toArray(edgeTargets), toArray(offsets), toArray(neighbors), toArray(edgeIds), maxDegree);
+    }
+
+    private static int[] toArray(IntBuffer buffer) {
+        int[] array = new int[buffer.limit()];
+        buffer.get(0, array);
+        return array;
+    }
+}
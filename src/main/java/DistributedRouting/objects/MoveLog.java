@@ -0,0 +1,421 @@
+package DistributedRouting.objects;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only record of every move of a run, written to a memory-mapped
+ * file. Each move is a fixed-width record; appending one claims a slot with
+ * a single atomic increment and stores six ints into the mapping, so any
+ * number of threads may append at once without locking or copying. The file
+ * also holds the graph and the starting pheromone state, which makes it all
+ * that is needed to rebuild the run offline.
+ *
+ * <pre>
+ * header (64 bytes): magic, version, numEdges, increment, decay, unused,
+ *                    tickNanos, count
+ * graph              see {@link GraphFile}
+ * pheromones[numEdges]   starting state, as in {@link PheromoneStore#saveState}
+ * moves[count]       tick + 1, antId, prevVertex, nextVertex, edgeId, modifier
+ * </pre>
+ *
+ * The count is written by {@link #close()}. The tick of a move is written
+ * last, with release semantics, and stored plus one, so a slot that was
+ * claimed but never filled reads as tick 0. The log of a run that crashed
+ * or was killed is read up to the first such slot.
+ *
+ * Moves are recorded in the order they claim their slots, which for two
+ * threads moving ants over the same edge at once need not be the order
+ * their deposits were applied in. Replayed in the recorded order, such a
+ * deposit may land a tick late or saturate differently, so a replay follows
+ * the live levels closely but not exactly.
+ */
+public class MoveLog implements Closeable {
+    private static final int MAGIC = 0x4d4f5645; // "MOVE"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 32;
+    private static final int RECORD_BYTES = 24;
+    /**
+     * Records are mapped in segments of this many, so the log can grow past
+     * the 2GB limit of a single mapping.
+     */
+    private static final int SEGMENT_SHIFT = 20;
+    private static final long SEGMENT_BYTES = (long) RECORD_BYTES << SEGMENT_SHIFT;
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Added to the next slot when the log closes, so appends claiming a slot
+     * afterwards can tell.
+     */
+    private static final long CLOSED = 1L << 62;
+
+    private final FileChannel channel;
+    private final long recordsStart;
+    private final AtomicLong next = new AtomicLong();
+    // Appends that claimed a slot before the log closed and are done with it.
+    private final LongAdder appended = new LongAdder();
+    private volatile long closedCount = -1;
+    // Replaced by a longer copy whenever a new segment is mapped.
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private MoveLog(FileChannel channel, long recordsStart) {
+        this.channel = channel;
+        this.recordsStart = recordsStart;
+    }
+
+    /**
+     * Starts a log.
+     *
+     * @param path          File to write to, replaced if it exists.
+     * @param graph         Graph the run takes place on.
+     * @param pheromones    Levels of the run, before any move.
+     * @param increment     Pheromone deposited by a move with modifier 1.
+     * @param tickNanos     Length of a tick of the pheromone clock.
+     * @return              An empty log.
+     * @throws IOException  Thrown if the file cannot be written.
+     */
+    public static MoveLog create(Path path, RawGraph graph, PheromoneStore pheromones, float increment,
+                                 long tickNanos) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(pheromones.size())
+                    .putFloat(increment).putFloat(pheromones.getDecay()).putInt(0)
+                    .putLong(tickNanos).putLong(-1);
+            header.clear();
+            writeFully(channel, header);
+
+            channel.position(HEADER_BYTES);
+            long graphBytes = GraphFile.write(graph, channel);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int edge = 0; edge < pheromones.size(); ) {
+                LongBuffer view = chunk.clear().asLongBuffer();
+                int count = pheromones.saveState(edge, view);
+                edge += count;
+                chunk.limit(8 * count);
+                writeFully(channel, chunk);
+            }
+            return new MoveLog(channel, HEADER_BYTES + graphBytes + 8L * pheromones.size());
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Records a move. Moves appended by different threads at the same time
+     * may be recorded in either order. Moves appended once the log is closed
+     * are dropped.
+     *
+     * @param tick          Tick of the pheromone clock the move was made at.
+     * @param antId         Ant that moved.
+     * @param prevVertex    Vertex it left.
+     * @param nextVertex    Vertex it arrived at.
+     * @param edgeId        Edge between the two.
+     * @param modifier      Modifier of the deposit.
+     * @return              False if the log was closed and the move not recorded.
+     */
+    public boolean append(int tick, int antId, int prevVertex, int nextVertex, int edgeId, float modifier) {
+        long index = next.getAndIncrement();
+        if (index >= CLOSED) {
+            return false;
+        }
+        try {
+            ByteBuffer segment = segment((int) (index >>> SEGMENT_SHIFT));
+            int offset = (int) (index & ((1 << SEGMENT_SHIFT) - 1)) * RECORD_BYTES;
+            segment.putInt(offset + 4, antId)
+                    .putInt(offset + 8, prevVertex)
+                    .putInt(offset + 12, nextVertex)
+                    .putInt(offset + 16, edgeId)
+                    .putFloat(offset + 20, modifier);
+            // Marks the record as complete.
+            INTS.setRelease(segment, offset, tick + 1);
+            return true;
+        } finally {
+            appended.increment();
+        }
+    }
+
+    private ByteBuffer segment(int index) {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+                try {
+                    for (int s = current.length; s <= index; s++) {
+                        grown[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                recordsStart + s * SEGMENT_BYTES, SEGMENT_BYTES);
+                        grown[s].order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to grow move log", ex);
+                }
+                segments = grown;
+                current = grown;
+            }
+            return current[index];
+        }
+    }
+
+    /**
+     * @return  Number of moves appended so far.
+     */
+    public long size() {
+        long count = next.get();
+        if (count < CLOSED) {
+            return count;
+        }
+        // Set by close right after it marked the log.
+        while ((count = closedCount) < 0) {
+            Thread.onSpinWait();
+        }
+        return count;
+    }
+
+    /**
+     * Stops taking moves, waits for the appends already under way, then
+     * writes the count, releases the mappings and trims the file to the
+     * moves actually appended. Appends racing the close are either recorded
+     * or dropped, never written to a released mapping.
+     */
+    @Override
+    public void close() throws IOException {
+        long count = next.getAndUpdate(n -> (n >= CLOSED) ? n : n + CLOSED);
+        if (count >= CLOSED) {
+            return;
+        }
+        closedCount = count;
+        while (appended.sum() < count) {
+            Thread.onSpinWait();
+        }
+        MappedByteBuffer[] mapped = segments;
+        segments = new MappedByteBuffer[0];
+        for (MappedByteBuffer segment : mapped) {
+            segment.force();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, count);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, COUNT_OFFSET + buffer.position());
+        }
+        // A file must not shrink under a live mapping; if the mappings cannot
+        // be released, the spare slots stay at the end of the file.
+        if (unmap(mapped)) {
+            channel.truncate(recordsStart + count * RECORD_BYTES);
+        }
+        channel.close();
+    }
+
+    /**
+     * Releases mappings right away instead of when they are collected, through
+     * the JDK's internal Unsafe. Any later access to them crashes the JVM,
+     * which {@link #close()} rules out by waiting for every append first.
+     *
+     * @return  False if the JDK does not allow it.
+     */
+    private static boolean unmap(MappedByteBuffer[] mapped) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            for (MappedByteBuffer segment : mapped) {
+                invokeCleaner.invoke(unsafe, segment);
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a log for reading. Moves are read straight from the mapping by
+     * index. A log that was not closed is read up to its first unfilled slot.
+     *
+     * @param path          File to read.
+     * @return              A reader of the log.
+     * @throws IOException  Thrown if the file cannot be read or is not a log.
+     */
+    public static Reader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated move log: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a move log: " + path);
+            }
+            int numEdges = header.getInt();
+            float increment = header.getFloat();
+            float decay = header.getFloat();
+            header.getInt();
+            long tickNanos = header.getLong();
+            long count = header.getLong();
+
+            RawGraph graph = GraphFile.read(channel, HEADER_BYTES);
+            long statesStart = HEADER_BYTES + GraphFile.sizeOf(graph);
+            long recordsStart = statesStart + 8L * numEdges;
+            if (count < 0) {
+                count = recoverCount(channel, recordsStart);
+            }
+            if (channel.size() < recordsStart + count * RECORD_BYTES) {
+                throw new IOException("Move log has the wrong size: " + path);
+            }
+            LongBuffer states = channel.map(FileChannel.MapMode.READ_ONLY, statesStart, 8L * numEdges)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            ByteBuffer[] segments = new ByteBuffer[(int) ((count + (1 << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+            for (int s = 0; s < segments.length; s++) {
+                long start = s * SEGMENT_BYTES;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, recordsStart + start,
+                        Math.min(SEGMENT_BYTES, count * RECORD_BYTES - start)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new Reader(graph, states, increment, decay, tickNanos, count, segments);
+        }
+    }
+
+    /**
+     * Counts the filled slots of a log that was not closed, up to the first
+     * one whose tick was never written.
+     */
+    private static long recoverCount(FileChannel channel, long recordsStart) throws IOException {
+        long capacity = Math.max(0, channel.size() - recordsStart) / RECORD_BYTES;
+        ByteBuffer chunk = ByteBuffer.allocateDirect(RECORD_BYTES << 12).order(ByteOrder.LITTLE_ENDIAN);
+        long count = 0;
+        while (count < capacity) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), (capacity - count) * RECORD_BYTES));
+            long position = recordsStart + count * RECORD_BYTES;
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, position + chunk.position()) < 0) {
+                    return count;
+                }
+            }
+            for (int offset = 0; offset < chunk.limit(); offset += RECORD_BYTES) {
+                if (chunk.getInt(offset) == 0) {
+                    return count;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read-only view of a log.
+     */
+    public static class Reader {
+        private final RawGraph graph;
+        private final LongBuffer states;
+        private final float increment;
+        private final float decay;
+        private final long tickNanos;
+        private final long count;
+        private final ByteBuffer[] segments;
+
+        private Reader(RawGraph graph, LongBuffer states, float increment, float decay, long tickNanos,
+                       long count, ByteBuffer[] segments) {
+            this.graph = graph;
+            this.states = states;
+            this.increment = increment;
+            this.decay = decay;
+            this.tickNanos = tickNanos;
+            this.count = count;
+            this.segments = segments;
+        }
+
+        public RawGraph getGraph() {
+            return graph;
+        }
+
+        public int numEdges() {
+            return states.limit();
+        }
+
+        public float getIncrement() {
+            return increment;
+        }
+
+        public float getDecay() {
+            return decay;
+        }
+
+        public long getTickNanos() {
+            return tickNanos;
+        }
+
+        /**
+         * @return  Number of moves in the log.
+         */
+        public long size() {
+            return count;
+        }
+
+        /**
+         * Sets a store to the pheromone state the run started from.
+         *
+         * @param pheromones    Store of {@link #numEdges()} edges, whose clock
+         *                      counts the same ticks as the logged run's.
+         */
+        public void restoreStart(PheromoneStore pheromones) {
+            pheromones.restoreState(0, states.duplicate());
+        }
+
+        public int tick(long move) {
+            return field(move, 0) - 1;
+        }
+
+        public int antId(long move) {
+            return field(move, 4);
+        }
+
+        public int prevVertex(long move) {
+            return field(move, 8);
+        }
+
+        public int nextVertex(long move) {
+            return field(move, 12);
+        }
+
+        public int edgeId(long move) {
+            return field(move, 16);
+        }
+
+        public float modifier(long move) {
+            return Float.intBitsToFloat(field(move, 20));
+        }
+
+        private int field(long move, int offset) {
+            ByteBuffer segment = segments[(int) (move >>> SEGMENT_SHIFT)];
+            return segment.getInt((int) (move & ((1 << SEGMENT_SHIFT) - 1)) * RECORD_BYTES + offset);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
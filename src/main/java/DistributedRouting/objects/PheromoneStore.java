@@ -0,0 +1,231 @@
+package DistributedRouting.objects;
+
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Pheromone levels of every edge of a {@link RawGraph}, indexed by edge id.
+ * Each edge is a single atomic long holding its level as float bits together
+ * with the tick at which that level was written, and is updated with
+ * compare-and-set, so ants working on different edges never contend and no
+ * update ever has to take a lock.
+ *
+ * Evaporation is lazy: reading an edge scales its stored level by
+ * decay^(ticks elapsed since it was written). There is no background sweep,
+ * and edges no ant touches cost nothing.
+ */
+public class PheromoneStore {
+    /**
+     * Powers of the decay factor cached for the common small tick gaps.
+     */
+    private static final int CACHED_POWERS = 1024;
+
+    private final AtomicLongArray levels;
+    private final float decay;
+    private final IntSupplier clock;
+    private final double[] powers;
+    // Deposits that lost a compare-and-set race and had to retry.
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Creates a store with every edge at the same level.
+     *
+     * @param numEdges      Number of edges, normally {@link RawGraph#numEdges()}, or
+     *                      more to leave room for edges added at runtime.
+     * @param initialLevel  Level every edge starts at.
+     * @param decay         Factor levels are scaled by every tick.
+     * @param clock         Current tick. Must never go backwards.
+     */
+    public PheromoneStore(int numEdges, float initialLevel, float decay, IntSupplier clock) {
+        this.decay = decay;
+        this.clock = clock;
+        this.powers = new double[CACHED_POWERS];
+        for (int k = 0; k < CACHED_POWERS; k++) {
+            powers[k] = StrictMath.pow(decay, k);
+        }
+
+        levels = new AtomicLongArray(numEdges);
+        long packed = pack(initialLevel, clock.getAsInt());
+        for (int e = 0; e < numEdges; e++) {
+            levels.setPlain(e, packed);
+        }
+    }
+
+    /**
+     * A clock ticking once every period, starting now.
+     *
+     * @param period    Length of a tick.
+     * @param unit      Unit of the period.
+     * @return          The number of whole periods elapsed since this call.
+     */
+    public static IntSupplier periodClock(long period, TimeUnit unit) {
+        long start = System.nanoTime();
+        long periodNanos = unit.toNanos(period);
+        return () -> (int) ((System.nanoTime() - start) / periodNanos);
+    }
+
+    public int size() {
+        return levels.length();
+    }
+
+    public float getDecay() {
+        return decay;
+    }
+
+    /**
+     * Number of times a deposit had to retry because another thread updated
+     * the same edge first. A measure of contention on hot edges.
+     */
+    public long getDepositRetries() {
+        return retries.sum();
+    }
+
+    public int currentTick() {
+        return clock.getAsInt();
+    }
+
+    public float get(int edgeId) {
+        return decayed(levels.get(edgeId), clock.getAsInt());
+    }
+
+    /**
+     * Reads every level at the same tick. Edges updated while the copy is
+     * made may show either their old or their new level.
+     *
+     * @return      The level of every edge, indexed by edge id.
+     */
+    public float[] snapshot() {
+        int now = clock.getAsInt();
+        float[] copy = new float[levels.length()];
+        for (int e = 0; e < copy.length; e++) {
+            copy[e] = decayed(levels.get(e), now);
+        }
+        return copy;
+    }
+
+    public void set(int edgeId, float level) {
+        levels.set(edgeId, pack(level, clock.getAsInt()));
+    }
+
+    /**
+     * Adds pheromone to an edge. Levels saturate at 1: the increment is only
+     * applied if it would not push the level past 1.
+     *
+     * @param edgeId        Edge to reinforce.
+     * @param increment     Amount of pheromone to add.
+     * @return              The level of the edge after the update.
+     */
+    public float deposit(int edgeId, float increment) {
+        return deposit(edgeId, increment, true, 0);
+    }
+
+    /**
+     * Adds pheromone to an edge as of a given tick, e.g. one read once for
+     * both the deposit and a record of it. If the edge was already written at
+     * a later tick, the deposit is made at that tick instead.
+     *
+     * @param edgeId        Edge to reinforce.
+     * @param increment     Amount of pheromone to add.
+     * @param tick          Tick to deposit at.
+     * @return              The level of the edge after the update.
+     */
+    public float deposit(int edgeId, float increment, int tick) {
+        return deposit(edgeId, increment, false, tick);
+    }
+
+    private float deposit(int edgeId, float increment, boolean readClock, int tick) {
+        while (true) {
+            long packed = levels.get(edgeId);
+            // Read after the load, and never older than the stored tick, so a
+            // deposit racing one at a later tick cannot move the edge back in
+            // time.
+            int now = Math.max(readClock ? clock.getAsInt() : tick, tickOf(packed));
+            float current = decayed(packed, now);
+            if (current > 1 - increment) {
+                return current;
+            }
+            float updated = current + increment;
+            if (levels.compareAndSet(edgeId, packed, pack(updated, now))) {
+                return updated;
+            }
+            retries.increment();
+        }
+    }
+
+    /**
+     * Copies the raw state of edges, each level together with the tick it
+     * was written at, for a checkpoint. Restored under a clock showing the
+     * same tick, the state gives back exactly the same levels.
+     *
+     * @param from  First edge to copy.
+     * @param out   Buffer to copy into, filled as far as it or the edges go.
+     * @return      Number of edges copied.
+     */
+    public int saveState(int from, LongBuffer out) {
+        int count = Math.min(out.remaining(), levels.length() - from);
+        for (int e = from; e < from + count; e++) {
+            out.put(levels.get(e));
+        }
+        return count;
+    }
+
+    /**
+     * Overwrites edges with state copied by {@link #saveState}.
+     *
+     * @param from  First edge to overwrite.
+     * @param in    Buffer to read from, read as far as it or the edges go.
+     * @return      Number of edges restored.
+     */
+    public int restoreState(int from, LongBuffer in) {
+        int count = Math.min(in.remaining(), levels.length() - from);
+        for (int e = from; e < from + count; e++) {
+            levels.set(e, in.get());
+        }
+        return count;
+    }
+
+    /**
+     * Copies the raw state of one edge, as {@link #saveState(int, LongBuffer)} does.
+     */
+    public long saveState(int edgeId) {
+        return levels.get(edgeId);
+    }
+
+    /**
+     * Overwrites one edge with state copied by {@link #saveState}.
+     */
+    public void restoreState(int edgeId, long state) {
+        levels.set(edgeId, state);
+    }
+
+    /**
+     * Level an edge restored from a saved state would have now.
+     *
+     * @param state     State copied by {@link #saveState}.
+     * @return          The level, decayed to the current tick.
+     */
+    public float level(long state) {
+        return decayed(state, clock.getAsInt());
+    }
+
+    private float decayed(long packed, int now) {
+        float level = Float.intBitsToFloat((int) packed);
+        int elapsed = now - tickOf(packed);
+        if (elapsed <= 0) {
+            return level;
+        }
+        double factor = (elapsed < CACHED_POWERS) ? powers[elapsed] : StrictMath.pow(decay, elapsed);
+        return (float) (level * factor);
+    }
+
+    private static int tickOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static long pack(float level, int tick) {
+        return ((long) tick << 32) | (Float.floatToRawIntBits(level) & 0xffffffffL);
+    }
+}
@@ -1,25 +1,160 @@
 package DistributedRouting.objects;
 
-import DistributedRouting.util.Logging;
-import com.google.common.collect.Sets;
-
-import java.util.*;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
 /**
  * Simple interface to define a Graph. Graphs have vertices and edges and are
  * able to answer queries like "what are neighbors of vetex 1?".
+ *
+ * Adjacency is stored in compressed sparse row (CSR) form: the neighbors of
+ * vertex v live in {@code neighbors[offsets[v] .. offsets[v+1])}, sorted in
+ * ascending order, and {@code edgeIds} holds the id of the edge each entry
+ * belongs to. Edge ids are dense in {@code [0, numEdges())} and are assigned
+ * in (source, target) order, so the same edge set always gets the same ids.
+ * In an undirected graph both directions of an edge share one id. The arrays
+ * are plain int arrays, also for graphs read from a {@link GraphFile}, so the
+ * neighbor loops of the ants only ever see one kind of array access.
+ *
+ * A graph never changes. {@link #withEdge} and its siblings return a changed
+ * copy, so ants reading the old graph are never disturbed. The copy is made
+ * in one pass over the index, O(vertices + edges) for every change, which is
+ * cheap next to the rate at which a topology changes. Every edge that is not
+ * touched keeps its id: an added edge takes the next id, and a removed
+ * edge's id goes to the last edge. Ids of a changed graph therefore no longer
+ * follow (source, target) order; {@link #fromEdges} indexes such a graph
+ * again under the same ids.
  */
 public class RawGraph {
-    private List<Integer> vertices;
-    private Map<Integer, Set<Integer>> edges;
-    private int source;
-    private int dest;
+    private final int[] vertices;
+    private final int source;
+    private final int dest;
+    private final boolean undirected;
 
-    public RawGraph(int source, int dest, List<Integer> vertices, Map<Integer, Set<Integer>> edges) {
-        this.vertices = vertices;
-        this.edges = edges;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] edgeIds;
+    private final int maxDegree;
+
+    /**
+     * Wraps an existing CSR index. Nothing is copied.
+     *
+     * @param source        Source vertex of the routing problem.
+     * @param dest          Destination vertex of the routing problem.
+     * @param undirected    Whether each edge is also traversable from target to source.
+     * @param vertices      All vertex ids, each non-negative.
+     * @param edgeSources   Source of each edge, indexed by edge id.
+     * @param edgeTargets   Target of each edge, indexed by edge id.
+     * @param offsets       Start of the row of every vertex id, plus the end of the last row.
+     * @param neighbors     Concatenated sorted rows.
+     * @param edgeIds       Edge id of every entry of {@code neighbors}.
+     * @param maxDegree     Largest row length.
+     */
+    RawGraph(int source, int dest, boolean undirected, int[] vertices, int[] edgeSources, int[] edgeTargets,
+             int[] offsets, int[] neighbors, int[] edgeIds, int maxDegree) {
         this.source = source;
         this.dest = dest;
+        this.undirected = undirected;
+        this.vertices = vertices;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.edgeIds = edgeIds;
+        this.maxDegree = maxDegree;
+    }
+
+    /**
+     * Builds the CSR index for a graph.
+     *
+     * @param source        Source vertex of the routing problem.
+     * @param dest          Destination vertex of the routing problem.
+     * @param vertices      All vertex ids, each non-negative.
+     * @param edgeSources   Source of each edge, indexed by edge id.
+     * @param edgeTargets   Target of each edge, indexed by edge id.
+     * @param undirected    Whether each edge is also traversable from target to source.
+     */
+    private static RawGraph index(int source, int dest, int[] vertices, int[] edgeSources, int[] edgeTargets,
+                                  boolean undirected) {
+        int maxVertex = Math.max(source, dest);
+        for (int vertex : vertices) {
+            maxVertex = Math.max(maxVertex, vertex);
+        }
+        for (int e = 0; e < edgeSources.length; e++) {
+            maxVertex = Math.max(maxVertex, Math.max(edgeSources[e], edgeTargets[e]));
+        }
+
+        // Count the entries of every row, then turn the counts into offsets.
+        int[] offsets = new int[maxVertex + 2];
+        for (int e = 0; e < edgeSources.length; e++) {
+            offsets[edgeSources[e] + 1]++;
+            if (undirected && edgeSources[e] != edgeTargets[e]) {
+                offsets[edgeTargets[e] + 1]++;
+            }
+        }
+        for (int v = 0; v <= maxVertex; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        // Edges from a Builder are sorted by (source, target) with source <= target
+        // when undirected, so filling rows in edge order leaves every row sorted.
+        int[] cursor = Arrays.copyOf(offsets, maxVertex + 1);
+        int[] neighbors = new int[offsets[maxVertex + 1]];
+        int[] edgeIds = new int[neighbors.length];
+        for (int e = 0; e < edgeSources.length; e++) {
+            int s = edgeSources[e];
+            int t = edgeTargets[e];
+            neighbors[cursor[s]] = t;
+            edgeIds[cursor[s]++] = e;
+            if (undirected && s != t) {
+                neighbors[cursor[t]] = s;
+                edgeIds[cursor[t]++] = e;
+            }
+        }
+
+        // Other edge orders are sorted row by row; sorted rows pass through in one scan.
+        for (int v = 0; v <= maxVertex; v++) {
+            for (int i = offsets[v] + 1; i < offsets[v + 1]; i++) {
+                int neighbor = neighbors[i];
+                int edge = edgeIds[i];
+                int j = i - 1;
+                for (; j >= offsets[v] && neighbors[j] > neighbor; j--) {
+                    neighbors[j + 1] = neighbors[j];
+                    edgeIds[j + 1] = edgeIds[j];
+                }
+                neighbors[j + 1] = neighbor;
+                edgeIds[j + 1] = edge;
+            }
+        }
+        return new RawGraph(source, dest, undirected, vertices, edgeSources, edgeTargets, offsets, neighbors,
+                edgeIds, maxDegree(offsets));
+    }
+
+    /**
+     * Indexes a graph under the edge ids it is given, e.g. those of a graph
+     * changed at runtime, instead of the ids a {@link Builder} would assign.
+     *
+     * @param source        Source vertex of the routing problem.
+     * @param dest          Destination vertex of the routing problem.
+     * @param undirected    Whether each edge is also traversable from target to source.
+     * @param vertices      All vertex ids, each non-negative.
+     * @param edgeSources   Source of each edge, indexed by edge id.
+     * @param edgeTargets   Target of each edge, indexed by edge id. No edge may appear twice.
+     */
+    public static RawGraph fromEdges(int source, int dest, boolean undirected, int[] vertices, int[] edgeSources,
+                                     int[] edgeTargets) {
+        return index(source, dest, vertices, edgeSources, edgeTargets, undirected);
+    }
+
+    private static int maxDegree(int[] offsets) {
+        int maxDegree = 0;
+        for (int v = 0; v + 1 < offsets.length; v++) {
+            maxDegree = Math.max(maxDegree, offsets[v + 1] - offsets[v]);
+        }
+        return maxDegree;
     }
 
     public int getSource() {
@@ -30,36 +165,579 @@ public class RawGraph {
         return dest;
     }
 
-    public List<Integer> getVertices() {
-        return vertices;
+    /**
+     * @return  A copy of the vertex ids of this graph.
+     */
+    public int[] getVertices() {
+        return vertices.clone();
+    }
+
+    public int numVertices() {
+        return vertices.length;
+    }
+
+    public boolean hasVertex(int vertex) {
+        for (int v : vertices) {
+            if (v == vertex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int numEdges() {
+        return edgeSources.length;
+    }
+
+    public boolean isUndirected() {
+        return undirected;
+    }
+
+    public int edgeSource(int edgeId) {
+        return edgeSources[edgeId];
+    }
+
+    public int edgeTarget(int edgeId) {
+        return edgeTargets[edgeId];
+    }
+
+    /**
+     * Number of neighbors of a given vertex.
+     *
+     * @param vertex    Vertex to fetch the degree of.
+     * @return          The degree of the vertex, 0 for unknown vertices.
+     */
+    public int degree(int vertex) {
+        if (vertex < 0 || vertex >= offsets.length - 1) {
+            return 0;
+        }
+        return offsets[vertex + 1] - offsets[vertex];
     }
 
-    public Map<Integer, Set<Integer>> getEdges() {
-        return edges;
+    public int maxDegree() {
+        return maxDegree;
     }
 
     /**
-     * Get all neighbors of a given vertex.
+     * First index of the neighbors of a vertex. Neighbors are iterated with
+     * <pre>
+     *     for (int i = graph.neighborsStart(v); i &lt; graph.neighborsEnd(v); i++) {
+     *         int neighbor = graph.neighborAt(i);
+     *         int edge = graph.edgeIdAt(i);
+     *     }
+     * </pre>
+     * which allocates nothing.
      *
      * @param vertex    Vertex to fetch neighbors of.
-     * @return          The neighbors of the provided vertex
+     * @return          Index of the first neighbor of the vertex.
      */
-    public Set<Integer> neighborsOf(int vertex) {
-        return edges.get(vertex);
+    public int neighborsStart(int vertex) {
+        if (vertex < 0 || vertex >= offsets.length - 1) {
+            return 0;
+        }
+        return offsets[vertex];
+    }
+
+    /**
+     * @param vertex    Vertex to fetch neighbors of.
+     * @return          Index one past the last neighbor of the vertex.
+     */
+    public int neighborsEnd(int vertex) {
+        if (vertex < 0 || vertex >= offsets.length - 1) {
+            return 0;
+        }
+        return offsets[vertex + 1];
+    }
+
+    /**
+     * Whether an ant on a vertex may go straight back to where it came from.
+     * This is only allowed on dead ends and on the terminals.
+     *
+     * @param vertex    Vertex the ant is on.
+     * @return          True if the previous vertex stays a candidate.
+     */
+    public boolean allowsBacktrack(int vertex) {
+        return degree(vertex) == 1 || vertex == dest || vertex == source;
+    }
+
+    public int neighborAt(int index) {
+        return neighbors[index];
     }
 
+    public int edgeIdAt(int index) {
+        return edgeIds[index];
+    }
+
+    /**
+     * Looks up the edge between two vertices.
+     *
+     * @param start     Vertex the edge leaves from.
+     * @param end       Vertex the edge arrives at.
+     * @return          The id of the edge, or -1 if the vertices are not adjacent.
+     */
+    public int edgeId(int start, int end) {
+        int low = neighborsStart(start);
+        int high = neighborsEnd(start) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int neighbor = neighbors[mid];
+            if (neighbor < end) {
+                low = mid + 1;
+            } else if (neighbor > end) {
+                high = mid - 1;
+            } else {
+                return edgeIds[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Number of edges on a shortest path between two vertices, found by
+     * breadth-first search.
+     *
+     * @param from  Vertex the path starts at.
+     * @param to    Vertex the path ends at.
+     * @return      The length of the path, or -1 if no path connects them.
+     */
+    public int distance(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        int[] distances = new int[Math.max(0, offsets.length - 1)];
+        if (from < 0 || from >= distances.length || to < 0 || to >= distances.length) {
+            return -1;
+        }
+        Arrays.fill(distances, -1);
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        distances[from] = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int i = neighborsStart(vertex); i < neighborsEnd(vertex); i++) {
+                int neighbor = neighbors[i];
+                if (distances[neighbor] < 0) {
+                    distances[neighbor] = distances[vertex] + 1;
+                    if (neighbor == to) {
+                        return distances[neighbor];
+                    }
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy of this graph with one more vertex, without any edge.
+     *
+     * @param vertex    Id of the vertex, non-negative and not yet in the graph.
+     */
+    public RawGraph withVertex(int vertex) {
+        if (vertex < 0 || hasVertex(vertex)) {
+            throw new IllegalArgumentException("Cannot add vertex " + vertex);
+        }
+        int[] vertexIds = Arrays.copyOf(getVertices(), numVertices() + 1);
+        vertexIds[vertexIds.length - 1] = vertex;
+        int[] offsetIndex = offsets;
+        if (vertex >= offsets.length - 1) {
+            offsetIndex = Arrays.copyOf(offsets, vertex + 2);
+            Arrays.fill(offsetIndex, offsets.length, offsetIndex.length, neighbors.length);
+        }
+        return new RawGraph(source, dest, undirected, vertexIds, edgeSources, edgeTargets, offsetIndex,
+                neighbors, edgeIds, maxDegree);
+    }
+
+    /**
+     * Copy of this graph without a vertex. Its edges must be removed first.
+     *
+     * @param vertex    A vertex without edges, other than the source and destination.
+     */
+    public RawGraph withoutVertex(int vertex) {
+        if (!hasVertex(vertex) || degree(vertex) > 0 || vertex == source || vertex == dest) {
+            throw new IllegalArgumentException("Cannot remove vertex " + vertex);
+        }
+        int[] vertexIds = new int[numVertices() - 1];
+        int next = 0;
+        for (int v : vertices) {
+            if (v != vertex) {
+                vertexIds[next++] = v;
+            }
+        }
+        return new RawGraph(source, dest, undirected, vertexIds, edgeSources, edgeTargets, offsets, neighbors,
+                edgeIds, maxDegree);
+    }
+
+    /**
+     * New id of every edge once a vertex is removed with
+     * {@link #withoutVertexAndEdges}. The ids of the removed edges are filled
+     * from the highest down, each by the edge that is last at that point,
+     * like a run of {@link #withoutEdge} calls would.
+     *
+     * @param vertex    A vertex other than the source and destination.
+     * @return          The new id of every edge, indexed by its current id,
+     *                  or -1 for the edges removed with the vertex.
+     */
+    public int[] edgeIdsWithoutVertex(int vertex) {
+        if (!hasVertex(vertex) || vertex == source || vertex == dest) {
+            throw new IllegalArgumentException("Cannot remove vertex " + vertex);
+        }
+        int numEdges = numEdges();
+        // The current id of the edge in every slot.
+        int[] edgeAt = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            edgeAt[e] = e;
+        }
+        int last = numEdges - 1;
+        for (int e = numEdges - 1; e >= 0; e--) {
+            if (edgeSources[e] == vertex || edgeTargets[e] == vertex) {
+                edgeAt[e] = edgeAt[last--];
+            }
+        }
+        int[] newIds = new int[numEdges];
+        Arrays.fill(newIds, -1);
+        for (int slot = 0; slot <= last; slot++) {
+            newIds[edgeAt[slot]] = slot;
+        }
+        return newIds;
+    }
+
+    /**
+     * Copy of this graph without a vertex and its edges, built in a single
+     * pass, with the edge ids given by {@link #edgeIdsWithoutVertex}.
+     *
+     * @param vertex    A vertex other than the source and destination.
+     */
+    public RawGraph withoutVertexAndEdges(int vertex) {
+        int[] newIds = edgeIdsWithoutVertex(vertex);
+        int kept = 0;
+        for (int id : newIds) {
+            if (id >= 0) {
+                kept++;
+            }
+        }
+        int[] sources = new int[kept];
+        int[] targets = new int[kept];
+        for (int e = 0; e < newIds.length; e++) {
+            if (newIds[e] >= 0) {
+                sources[newIds[e]] = edgeSources[e];
+                targets[newIds[e]] = edgeTargets[e];
+            }
+        }
+
+        // Rows keep their order; entries of removed edges are dropped.
+        int[] rowOffsets = new int[offsets.length];
+        int[] rowNeighbors = new int[neighbors.length];
+        int[] rowIds = new int[neighbors.length];
+        int next = 0;
+        for (int v = 0; v + 1 < offsets.length; v++) {
+            rowOffsets[v] = next;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int id = newIds[edgeIds[i]];
+                if (id >= 0) {
+                    rowNeighbors[next] = neighbors[i];
+                    rowIds[next++] = id;
+                }
+            }
+        }
+        rowOffsets[offsets.length - 1] = next;
+
+        int[] vertexIds = new int[numVertices() - 1];
+        int count = 0;
+        for (int v : vertices) {
+            if (v != vertex) {
+                vertexIds[count++] = v;
+            }
+        }
+        return new RawGraph(source, dest, undirected, vertexIds, sources, targets, rowOffsets,
+                Arrays.copyOf(rowNeighbors, next), Arrays.copyOf(rowIds, next), maxDegree(rowOffsets));
+    }
+
+    /**
+     * Copy of this graph with one more edge, whose id is {@link #numEdges()}.
+     *
+     * @param start     Vertex the edge leaves from, already in the graph.
+     * @param end       Vertex the edge arrives at, already in the graph.
+     */
+    public RawGraph withEdge(int start, int end) {
+        if (!hasVertex(start) || !hasVertex(end) || edgeId(start, end) >= 0) {
+            throw new IllegalArgumentException("Cannot add edge " + start + "-" + end);
+        }
+        int id = numEdges();
+        int[] sources = Arrays.copyOf(edgeSources, id + 1);
+        int[] targets = Arrays.copyOf(edgeTargets, id + 1);
+        // Same orientation as the edges of a Builder.
+        sources[id] = (undirected && start > end) ? end : start;
+        targets[id] = (undirected && start > end) ? start : end;
+
+        Rows rows = new Rows(this);
+        rows.insert(start, end, id);
+        if (undirected && start != end) {
+            rows.insert(end, start, id);
+        }
+        return rows.toGraph(this, sources, targets);
+    }
+
+    /**
+     * Copy of this graph without an edge. The last edge takes over its id.
+     *
+     * @param start     Vertex the edge leaves from.
+     * @param end       Vertex the edge arrives at.
+     */
+    public RawGraph withoutEdge(int start, int end) {
+        int id = edgeId(start, end);
+        if (id < 0) {
+            throw new IllegalArgumentException("Cannot remove missing edge " + start + "-" + end);
+        }
+        int last = numEdges() - 1;
+        int[] sources = Arrays.copyOf(edgeSources, last);
+        int[] targets = Arrays.copyOf(edgeTargets, last);
+
+        Rows rows = new Rows(this);
+        rows.remove(start, end);
+        if (undirected && start != end) {
+            rows.remove(end, start);
+        }
+        if (id != last) {
+            int lastSource = edgeSources[last];
+            int lastTarget = edgeTargets[last];
+            sources[id] = lastSource;
+            targets[id] = lastTarget;
+            rows.renumber(lastSource, lastTarget, id);
+            if (undirected && lastSource != lastTarget) {
+                rows.renumber(lastTarget, lastSource, id);
+            }
+        }
+        return rows.toGraph(this, sources, targets);
+    }
+
+    /**
+     * Rows of a graph, patched one entry at a time. The entries stay shared
+     * with the graph until the first insert or remove copies them, which every
+     * change starts with, so each change copies them only once.
+     */
+    private static class Rows {
+        final int[] offsets;
+        int[] neighbors;
+        int[] edgeIds;
+
+        Rows(RawGraph graph) {
+            offsets = graph.offsets.clone();
+            neighbors = graph.neighbors;
+            edgeIds = graph.edgeIds;
+        }
+
+        /**
+         * @return  Index of the first entry of a row not smaller than a neighbor.
+         */
+        int find(int row, int neighbor) {
+            int low = offsets[row];
+            int high = offsets[row + 1];
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (neighbors[mid] < neighbor) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void insert(int row, int neighbor, int edgeId) {
+            int at = find(row, neighbor);
+            int[] grownNeighbors = new int[neighbors.length + 1];
+            int[] grownIds = new int[edgeIds.length + 1];
+            System.arraycopy(neighbors, 0, grownNeighbors, 0, at);
+            System.arraycopy(edgeIds, 0, grownIds, 0, at);
+            grownNeighbors[at] = neighbor;
+            grownIds[at] = edgeId;
+            System.arraycopy(neighbors, at, grownNeighbors, at + 1, neighbors.length - at);
+            System.arraycopy(edgeIds, at, grownIds, at + 1, edgeIds.length - at);
+            neighbors = grownNeighbors;
+            edgeIds = grownIds;
+            for (int v = row + 1; v < offsets.length; v++) {
+                offsets[v]++;
+            }
+        }
+
+        void remove(int row, int neighbor) {
+            int at = find(row, neighbor);
+            neighbors = cut(neighbors, at);
+            edgeIds = cut(edgeIds, at);
+            for (int v = row + 1; v < offsets.length; v++) {
+                offsets[v]--;
+            }
+        }
+
+        void renumber(int row, int neighbor, int edgeId) {
+            edgeIds[find(row, neighbor)] = edgeId;
+        }
+
+        private static int[] cut(int[] array, int at) {
+            int[] shrunk = new int[array.length - 1];
+            System.arraycopy(array, 0, shrunk, 0, at);
+            System.arraycopy(array, at + 1, shrunk, at, shrunk.length - at);
+            return shrunk;
+        }
+
+        RawGraph toGraph(RawGraph graph, int[] edgeSources, int[] edgeTargets) {
+            return new RawGraph(graph.source, graph.dest, graph.undirected, graph.vertices, edgeSources,
+                    edgeTargets, offsets, neighbors, edgeIds, maxDegree(offsets));
+        }
+    }
+
+    /**
+     * Read-only views of the index, for {@link GraphFile}.
+     */
+    IntBuffer vertexBuffer() {
+        return IntBuffer.wrap(vertices).asReadOnlyBuffer();
+    }
+
+    IntBuffer edgeSourceBuffer() {
+        return IntBuffer.wrap(edgeSources).asReadOnlyBuffer();
+    }
+
+    IntBuffer edgeTargetBuffer() {
+        return IntBuffer.wrap(edgeTargets).asReadOnlyBuffer();
+    }
+
+    IntBuffer offsetBuffer() {
+        return IntBuffer.wrap(offsets).asReadOnlyBuffer();
+    }
+
+    IntBuffer neighborBuffer() {
+        return IntBuffer.wrap(neighbors).asReadOnlyBuffer();
+    }
+
+    IntBuffer edgeIdBuffer() {
+        return IntBuffer.wrap(edgeIds).asReadOnlyBuffer();
+    }
+
+    /**
+     * Builds the undirected version of this graph. Edges given in both
+     * directions collapse into a single edge.
+     *
+     * @return  An undirected graph over the same vertices.
+     */
     public RawGraph asUndirectedGraph() {
-        // Make mutable
-        Map<Integer, Set<Integer>> newEdges = new HashMap<>();
+        Builder builder = new Builder(source, dest).addVertices(getVertices());
+        for (int e = 0; e < numEdges(); e++) {
+            builder.addEdge(edgeSources[e], edgeTargets[e]);
+        }
+        return builder.buildUndirected();
+    }
+
+    /**
+     * Accumulates vertices and edges in primitive arrays and then builds a
+     * {@link RawGraph} from them. Duplicate edges are dropped.
+     */
+    public static class Builder {
+        private final int source;
+        private final int dest;
+
+        private int[] vertices = new int[16];
+        private int numVertices = 0;
+
+        private long[] edges = new long[16];
+        private int numEdges = 0;
+
+        public Builder(int source, int dest) {
+            this.source = source;
+            this.dest = dest;
+        }
 
-        for (Integer source : edges.keySet()) {
-            Set<Integer> destinations = new HashSet<>(edges.get(source));
-            newEdges.merge(source, destinations, Sets::union);
-            for (Integer dest : destinations) {
-                Set<Integer> dests = newEdges.compute(dest, (k,v) -> (v == null) ? new HashSet<>() : v);
-                dests.add(source);
+        public Builder addVertex(int vertex) {
+            if (vertex < 0) {
+                throw new IllegalArgumentException("Vertex ids must be non-negative, got " + vertex);
             }
+            if (numVertices == vertices.length) {
+                vertices = Arrays.copyOf(vertices, vertices.length * 2);
+            }
+            vertices[numVertices++] = vertex;
+            return this;
+        }
+
+        public Builder addVertices(int... toAdd) {
+            for (int vertex : toAdd) {
+                addVertex(vertex);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the vertices first, first + 1, ..., last.
+         */
+        public Builder addVertexRange(int first, int last) {
+            for (int vertex = first; vertex <= last; vertex++) {
+                addVertex(vertex);
+            }
+            return this;
+        }
+
+        public Builder addEdge(int start, int end) {
+            if (start < 0 || end < 0) {
+                throw new IllegalArgumentException(
+                        String.format("Vertex ids must be non-negative, got (%d,%d)", start, end));
+            }
+            if (numEdges == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+            }
+            edges[numEdges++] = pack(start, end);
+            return this;
+        }
+
+        /**
+         * Adds every vertex and edge of another builder to this one.
+         */
+        public Builder addAll(Builder other) {
+            for (int i = 0; i < other.numVertices; i++) {
+                addVertex(other.vertices[i]);
+            }
+            if (numEdges + other.numEdges > edges.length) {
+                edges = Arrays.copyOf(edges, Math.max(numEdges + other.numEdges, edges.length * 2));
+            }
+            System.arraycopy(other.edges, 0, edges, numEdges, other.numEdges);
+            numEdges += other.numEdges;
+            return this;
+        }
+
+        public RawGraph build() {
+            return build(false);
+        }
+
+        public RawGraph buildUndirected() {
+            return build(true);
+        }
+
+        private RawGraph build(boolean undirected) {
+            long[] sorted = new long[numEdges];
+            for (int i = 0; i < numEdges; i++) {
+                int start = (int) (edges[i] >>> 32);
+                int end = (int) edges[i];
+                sorted[i] = (undirected && start > end) ? pack(end, start) : edges[i];
+            }
+            Arrays.parallelSort(sorted);
+
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            int[] edgeSources = new int[unique];
+            int[] edgeTargets = new int[unique];
+            for (int e = 0; e < unique; e++) {
+                edgeSources[e] = (int) (sorted[e] >>> 32);
+                edgeTargets[e] = (int) sorted[e];
+            }
+            return index(source, dest, Arrays.copyOf(vertices, numVertices), edgeSources, edgeTargets, undirected);
+        }
+
+        private static long pack(int start, int end) {
+            return ((long) start << 32) | (end & 0xffffffffL);
         }
-        return new RawGraph(source, dest, new ArrayList<>(vertices), newEdges);
     }
 }
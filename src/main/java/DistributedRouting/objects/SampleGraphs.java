@@ -1,11 +1,6 @@
 package DistributedRouting.objects;
 
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
-
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 
 /**
@@ -13,61 +8,290 @@ import java.util.stream.IntStream;
  */
 public class SampleGraphs {
 
+    /**
+     * Row ranges the parallel Erdős–Rényi generator splits the work into. Fixed
+     * so that a seed gives the same graph whatever the number of cores.
+     */
+    private static final int GENERATOR_CHUNKS = 64;
+
     /**
      * K3 graph.
      */
-    public static RawGraph simpleGraph = new RawGraph(1, 1, Arrays.asList(1,2,3), ImmutableMap.of(
-            1, Sets.newHashSet(2),
-            2, Sets.newHashSet(3),
-            3, Sets.newHashSet(1)));
+    public static RawGraph simpleGraph = new RawGraph.Builder(1, 1)
+            .addVertexRange(1, 3)
+            .addEdge(1, 2)
+            .addEdge(2, 3)
+            .addEdge(3, 1)
+            .build();
 
-    public static RawGraph doublePath = new RawGraph(1, 6,
-            IntStream.rangeClosed(1,6).boxed().toList(),
-            ImmutableMap.of(1, ImmutableSet.of(2,4),2, ImmutableSet.of(3), 3, ImmutableSet.of(6),
-                    4, ImmutableSet.of(5), 5, ImmutableSet.of(6))
-        );
+    public static RawGraph doublePath = new RawGraph.Builder(1, 6)
+            .addVertexRange(1, 6)
+            .addEdge(1, 2).addEdge(1, 4)
+            .addEdge(2, 3)
+            .addEdge(3, 6)
+            .addEdge(4, 5)
+            .addEdge(5, 6)
+            .build();
 
     public static RawGraph unevenPath(int length1, int length2) {
-        List<Integer> vertices = IntStream.rangeClosed(1, length1 + length2).boxed().toList();
-        HashMap<Integer, Set<Integer>> edges = new HashMap<>();
-        edges.put(1, ImmutableSet.of(length1 + 1, 2));
+        RawGraph.Builder builder = new RawGraph.Builder(1, length1 + length2)
+                .addVertexRange(1, length1 + length2);
+        builder.addEdge(1, length1 + 1).addEdge(1, 2);
         for (int i = 2; i < length1; i++) {
-            edges.put(i, ImmutableSet.of(i+1));
+            builder.addEdge(i, i+1);
         }
         for (int i = 2; i < length2; i++) {
-            edges.put(i + (length1 -1), ImmutableSet.of(i+length1));
+            builder.addEdge(i + (length1 -1), i+length1);
         }
-        edges.put(length1, ImmutableSet.of(length1 + length2));
-        edges.put(length1 + length2 - 1, ImmutableSet.of(length1 + length2));
+        builder.addEdge(length1, length1 + length2);
+        builder.addEdge(length1 + length2 - 1, length1 + length2);
 
-        return new RawGraph(1, length1 + length2, vertices, edges);
+        return builder.build();
     }
 
     public static RawGraph longDoublePath(int length) {
-        List<Integer> vertices = IntStream.rangeClosed(1, length*2).boxed().toList();
-        HashMap<Integer, Set<Integer>> edges = new HashMap<>();
-        edges.put(1, ImmutableSet.of(length + 1, 2));
+        RawGraph.Builder builder = new RawGraph.Builder(1, length*2)
+                .addVertexRange(1, length*2);
+        builder.addEdge(1, length + 1).addEdge(1, 2);
         for (int i = 2; i < length; i++) {
-            edges.put(i, ImmutableSet.of(i+1));
-            edges.put(i + (length - 1), ImmutableSet.of(i+length));
+            builder.addEdge(i, i+1);
+            builder.addEdge(i + (length - 1), i+length);
         }
-        edges.put(length, ImmutableSet.of(length * 2));
-        edges.put(2*length - 1, ImmutableSet.of(length * 2));
+        builder.addEdge(length, length * 2);
+        builder.addEdge(2*length - 1, length * 2);
 
-        return new RawGraph(1, length*2, vertices, edges);
+        return builder.build();
     }
 
+    /**
+     * G(n,p) graph drawn by testing every pair of vertices. This is quadratic
+     * in n, but it is the generator the recorded seeds refer to. Use
+     * {@link #fastErdosReyniGraph} for anything large.
+     */
     public static RawGraph erdosReyniGraph(int n, float p, Random random) {
-        List<Integer> vertices = IntStream.rangeClosed(1, n).boxed().toList();
-        HashMap<Integer, Set<Integer>> edges = new HashMap<>();
+        RawGraph.Builder builder = new RawGraph.Builder(1, n).addVertexRange(1, n);
         for (int i = 1; i < n; i++) {
-            Set<Integer> currentEdges = new HashSet<>();
             for (int j = i+1; j <= n; j++) {
                 if (random.nextFloat(0,1) > p) continue;
-                currentEdges.add(j);
+                builder.addEdge(i, j);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Undirected G(n,p) graph over the vertices 1..n in O(n + m) time. Instead
+     * of testing every pair, the generator draws the geometrically distributed
+     * gap to the next pair that is an edge (Batagelj and Brandes, 2005).
+     *
+     * @param n         Number of vertices.
+     * @param p         Probability of each edge.
+     * @param seed      Seed of the graph.
+     * @param parallel  Whether to generate the rows on all cores. The graph
+     *                  for a given seed is the same either way.
+     * @return          The graph, with source 1 and destination n.
+     */
+    public static RawGraph fastErdosReyniGraph(int n, double p, long seed, boolean parallel) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // Split the rows so that every chunk holds about the same number of pairs.
+        int[] bounds = new int[GENERATOR_CHUNKS + 1];
+        SplittableRandom[] randoms = new SplittableRandom[GENERATOR_CHUNKS];
+        for (int c = 0; c < GENERATOR_CHUNKS; c++) {
+            bounds[c + 1] = (int) Math.round(n * Math.sqrt((c + 1) / (double) GENERATOR_CHUNKS));
+            randoms[c] = random.split();
+        }
+        bounds[GENERATOR_CHUNKS] = n;
+
+        IntStream chunks = IntStream.range(0, GENERATOR_CHUNKS);
+        if (parallel) {
+            chunks = chunks.parallel();
+        }
+        List<RawGraph.Builder> parts = chunks
+                .mapToObj(c -> erdosReyniRows(bounds[c], bounds[c + 1], p, randoms[c]))
+                .toList();
+
+        RawGraph.Builder builder = new RawGraph.Builder(1, n).addVertexRange(1, n);
+        for (RawGraph.Builder part : parts) {
+            builder.addAll(part);
+        }
+        return builder.buildUndirected();
+    }
+
+    /**
+     * Draws the edges (v, w) with w &lt; v for the rows v in [from, to), with
+     * vertices numbered from 0.
+     */
+    private static RawGraph.Builder erdosReyniRows(int from, int to, double p, SplittableRandom random) {
+        RawGraph.Builder builder = new RawGraph.Builder(1, 1);
+        if (p <= 0) {
+            return builder;
+        }
+        if (p >= 1) {
+            for (int v = from; v < to; v++) {
+                for (int w = 0; w < v; w++) {
+                    builder.addEdge(v + 1, w + 1);
+                }
+            }
+            return builder;
+        }
+        double logQ = Math.log(1 - p);
+        int v = Math.max(from, 1);
+        long w = -1;
+        while (v < to) {
+            // Capped so that a vanishingly small p cannot overflow the row index.
+            w += 1 + (long) Math.min(Math.floor(Math.log(1 - random.nextDouble()) / logQ), 1L << 62);
+            while (w >= v && v < to) {
+                w -= v;
+                v++;
+            }
+            if (v < to) {
+                builder.addEdge(v + 1, (int) w + 1);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Barabási–Albert preferential attachment graph. Starts from a clique on
+     * m + 1 vertices, then every new vertex links to m distinct existing
+     * vertices picked with probability proportional to their degree.
+     *
+     * @param n         Number of vertices.
+     * @param m         Edges added with every new vertex.
+     * @param seed      Seed of the graph.
+     * @return          The graph over 1..n, with source 1 and destination n.
+     */
+    public static RawGraph barabasiAlbertGraph(int n, int m, long seed) {
+        if (m < 1 || n <= m) {
+            throw new IllegalArgumentException(String.format("Need 1 <= m < n, got n=%d, m=%d", n, m));
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        RawGraph.Builder builder = new RawGraph.Builder(1, n).addVertexRange(1, n);
+        // Every edge endpoint so far; sampling from it is sampling by degree.
+        int[] endpoints = new int[m * (m + 1) + 2 * m * (n - m - 1)];
+        int numEndpoints = 0;
+        for (int v = 1; v <= m + 1; v++) {
+            for (int w = v + 1; w <= m + 1; w++) {
+                builder.addEdge(v, w);
+                endpoints[numEndpoints++] = v;
+                endpoints[numEndpoints++] = w;
+            }
+        }
+        int[] targets = new int[m];
+        for (int v = m + 2; v <= n; v++) {
+            int picked = 0;
+            while (picked < m) {
+                int candidate = endpoints[random.nextInt(numEndpoints)];
+                boolean duplicate = false;
+                for (int i = 0; i < picked; i++) {
+                    duplicate |= targets[i] == candidate;
+                }
+                if (!duplicate) {
+                    targets[picked++] = candidate;
+                }
+            }
+            for (int target : targets) {
+                builder.addEdge(target, v);
+                endpoints[numEndpoints++] = target;
+                endpoints[numEndpoints++] = v;
+            }
+        }
+        return builder.buildUndirected();
+    }
+
+    /**
+     * Two dimensional grid. Vertex (r, c) has id r * cols + c + 1, so the source
+     * and destination are opposite corners.
+     *
+     * @param rows      Number of rows.
+     * @param cols      Number of columns.
+     * @param torus     Whether to wrap the grid around in both directions.
+     * @return          The grid graph.
+     */
+    public static RawGraph gridGraph(int rows, int cols, boolean torus) {
+        int n = rows * cols;
+        RawGraph.Builder builder = new RawGraph.Builder(1, n).addVertexRange(1, n);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int vertex = r * cols + c + 1;
+                if (c + 1 < cols) {
+                    builder.addEdge(vertex, vertex + 1);
+                } else if (torus && cols > 1) {
+                    builder.addEdge(vertex, r * cols + 1);
+                }
+                if (r + 1 < rows) {
+                    builder.addEdge(vertex, vertex + cols);
+                } else if (torus && rows > 1) {
+                    builder.addEdge(vertex, c + 1);
+                }
+            }
+        }
+        return builder.buildUndirected();
+    }
+
+    /**
+     * Random d-regular graph, built by pairing the d "stubs" of every vertex
+     * at random while never creating loops or parallel edges (Steger and
+     * Wormald, 1999). Restarts on the rare occasion the pairing gets stuck.
+     *
+     * @param n         Number of vertices.
+     * @param d         Degree of every vertex, with n * d even and d &lt; n.
+     * @param seed      Seed of the graph.
+     * @return          The graph over 1..n, with source 1 and destination n.
+     */
+    public static RawGraph randomRegularGraph(int n, int d, long seed) {
+        if (d >= n || ((long) n * d) % 2 != 0) {
+            throw new IllegalArgumentException(String.format("No %d-regular graph on %d vertices", d, n));
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] stubs = new int[n * d];
+        int[] adjacency = new int[n * d];
+        int[] degree = new int[n];
+        while (true) {
+            Arrays.fill(degree, 0);
+            for (int i = 0; i < stubs.length; i++) {
+                stubs[i] = i / d;
+            }
+            int remaining = stubs.length;
+            int failures = 0;
+            while (remaining > 0 && failures < 100 + 10 * d) {
+                int i = random.nextInt(remaining);
+                int j = random.nextInt(remaining);
+                int u = stubs[i];
+                int v = stubs[j];
+                if (u == v || adjacent(adjacency, degree, d, u, v)) {
+                    failures++;
+                    continue;
+                }
+                failures = 0;
+                adjacency[u * d + degree[u]++] = v;
+                adjacency[v * d + degree[v]++] = u;
+                // Remove both stubs, the larger index first so the other stays put.
+                stubs[Math.max(i, j)] = stubs[--remaining];
+                stubs[Math.min(i, j)] = stubs[--remaining];
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+
+        RawGraph.Builder builder = new RawGraph.Builder(1, n).addVertexRange(1, n);
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < d; k++) {
+                if (u < adjacency[u * d + k]) {
+                    builder.addEdge(u + 1, adjacency[u * d + k] + 1);
+                }
+            }
+        }
+        return builder.buildUndirected();
+    }
+
+    private static boolean adjacent(int[] adjacency, int[] degree, int d, int u, int v) {
+        for (int k = 0; k < degree[u]; k++) {
+            if (adjacency[u * d + k] == v) {
+                return true;
             }
-            edges.put(i, currentEdges);
         }
-        return new RawGraph(1, n, vertices, edges);
+        return false;
     }
 }
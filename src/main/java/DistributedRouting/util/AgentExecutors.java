@@ -0,0 +1,28 @@
+package DistributedRouting.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors agents can be run on. Agents spend nearly all their time waiting
+ * on their scheduler or on the controller, so they are best run on virtual
+ * threads where the JVM provides them.
+ */
+public class AgentExecutors {
+
+    /**
+     * Runs every agent on its own virtual thread. Falls back to a cached pool
+     * of platform threads on JVMs without virtual threads (before Java 21, or
+     * without preview features enabled).
+     *
+     * @return  An executor starting one thread per submitted agent.
+     */
+    public static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+            Logging.logInfo("Virtual threads unavailable, running agents on platform threads.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
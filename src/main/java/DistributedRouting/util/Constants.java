@@ -6,8 +6,17 @@ package DistributedRouting.util;
 public class Constants {
     public static final int MESSAGE_PORT = 7777;
 
+    // The framed transport, an alternative to the Log service on MESSAGE_PORT.
+    public static final int FRAME_PORT = 7700;
+
+    // Shard i of a partitioned run listens on SHARD_PORT + i.
+    public static final int SHARD_PORT = 7800;
+
     public static final float INCREMENT = 0.01f;
 
     public static final float DECAY = 0.97f;
 
+    // Pheromone slots kept free for edges added to a running colony.
+    public static final int SPARE_EDGES = 64;
+
 }
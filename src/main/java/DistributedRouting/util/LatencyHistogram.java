@@ -0,0 +1,98 @@
+package DistributedRouting.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in power-of-two nanosecond buckets: bucket i counts
+ * the samples in [2^i, 2^(i+1)). Recording is a couple of uncontended adds,
+ * so it is cheap enough to wrap every RPC. Percentiles are only resolved to
+ * their bucket and are reported as its upper bound.
+ */
+public class LatencyHistogram {
+    public static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos     A latency, in nanoseconds.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts[63 - Long.numberOfLeadingZeros(nanos | 1)].increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return  The count of every bucket. Samples recorded while the counts
+     *          are read may or may not be included.
+     */
+    public long[] buckets() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = counts[i].sum();
+        }
+        return buckets;
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public double meanNanos() {
+        long count = count();
+        return (count == 0) ? 0 : totalNanos.sum() / (double) count;
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param quantile  Quantile to look up, in [0, 1].
+     * @return          Upper bound of the bucket holding the quantile, or 0
+     *                  if nothing was recorded.
+     */
+    public long percentileNanos(double quantile) {
+        long[] buckets = buckets();
+        long count = 0;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return (i == 63) ? Long.MAX_VALUE : (2L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
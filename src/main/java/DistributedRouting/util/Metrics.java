@@ -0,0 +1,142 @@
+package DistributedRouting.util;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Counters of a running server: a latency histogram per RPC, the number of
+ * ant steps and named gauges read on demand. Hot paths fetch their histogram
+ * once and keep it, so recording never looks anything up. Readable over the
+ * Stats RPC and over JMX.
+ */
+public class Metrics implements MetricsMXBean {
+    /**
+     * Shortest window the step rate is measured over.
+     */
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final LongAdder steps = new LongAdder();
+
+    // Last step rate sample, guarded by this.
+    private long sampleNanos = startNanos;
+    private long sampleSteps = 0;
+    private double stepsPerSecond = 0;
+
+    /**
+     * The histogram of an RPC, created on first use.
+     *
+     * @param rpc   Name of the RPC.
+     * @return      The histogram to record its latencies in.
+     */
+    public LatencyHistogram latency(String rpc) {
+        return latencies.computeIfAbsent(rpc, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Adds a value that is read whenever the metrics are.
+     *
+     * @param name      Name of the gauge.
+     * @param value     Reads the current value.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public void step() {
+        steps.increment();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param name  Object name, e.g. "DistributedRouting:type=Metrics".
+     */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+        } catch (JMException ex) {
+            Logging.logError("Failed to register metrics with JMX: " + ex.getMessage());
+        }
+    }
+
+    public Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public double getUptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public long getSteps() {
+        return steps.sum();
+    }
+
+    /**
+     * Step rate over the last window of at least a second. Readers refresh
+     * the sample, so the rate is as fresh as the most recent read allows.
+     */
+    @Override
+    public synchronized double getStepsPerSecond() {
+        long now = System.nanoTime();
+        if (now - sampleNanos >= RATE_WINDOW_NANOS) {
+            long total = steps.sum();
+            stepsPerSecond = (total - sampleSteps) * 1e9 / (now - sampleNanos);
+            sampleNanos = now;
+            sampleSteps = total;
+        }
+        return stepsPerSecond;
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        latencies.forEach((rpc, histogram) -> counts.put(rpc, histogram.count()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencyMicros() {
+        return perRpc(LatencyHistogram::meanNanos);
+    }
+
+    @Override
+    public Map<String, Double> getP50LatencyMicros() {
+        return perRpc(histogram -> histogram.percentileNanos(0.5));
+    }
+
+    @Override
+    public Map<String, Double> getP99LatencyMicros() {
+        return perRpc(histogram -> histogram.percentileNanos(0.99));
+    }
+
+    @Override
+    public Map<String, Double> getMaxLatencyMicros() {
+        return perRpc(LatencyHistogram::maxNanos);
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, value) -> values.put(name, value.getAsLong()));
+        return values;
+    }
+
+    private Map<String, Double> perRpc(ToDoubleFunction<LatencyHistogram> nanos) {
+        Map<String, Double> values = new TreeMap<>();
+        latencies.forEach((rpc, histogram) -> values.put(rpc, nanos.applyAsDouble(histogram) / 1e3));
+        return values;
+    }
+}
@@ -0,0 +1,26 @@
+package DistributedRouting.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}. Latency maps are keyed by RPC name.
+ */
+public interface MetricsMXBean {
+    double getUptimeSeconds();
+
+    long getSteps();
+
+    double getStepsPerSecond();
+
+    Map<String, Long> getRequestCounts();
+
+    Map<String, Double> getMeanLatencyMicros();
+
+    Map<String, Double> getP50LatencyMicros();
+
+    Map<String, Double> getP99LatencyMicros();
+
+    Map<String, Double> getMaxLatencyMicros();
+
+    Map<String, Long> getGauges();
+}
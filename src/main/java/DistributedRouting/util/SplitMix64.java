@@ -0,0 +1,108 @@
+package DistributedRouting.util;
+
+/**
+ * The SplitMix64 generator behind {@link java.util.SplittableRandom},
+ * producing the same values for the same seed, but with its state (a seed
+ * and an odd gamma) readable and settable so that a generator can be saved
+ * and later resumed exactly. Not thread-safe.
+ */
+public class SplitMix64 {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private final long gamma;
+
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Seeded from the clock, for runs that do not need to be repeatable.
+     */
+    public SplitMix64() {
+        this(mix64(System.nanoTime()) ^ mix64(System.currentTimeMillis() + GOLDEN_GAMMA));
+    }
+
+    /**
+     * Resumes a generator from its state.
+     *
+     * @param seed      The seed, see {@link #getSeed()}.
+     * @param gamma     The gamma, see {@link #getGamma()}. Must be odd.
+     */
+    public SplitMix64(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getGamma() {
+        return gamma;
+    }
+
+    /**
+     * A new generator whose values are independent of this one's.
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong(), mixGamma(nextSeed()));
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    /**
+     * @param bound     Exclusive upper bound, positive.
+     * @return          A uniform value in [0, bound).
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive, got " + bound);
+        }
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        // Rejects the values that would make the result non-uniform.
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1);
+        return r;
+    }
+
+    /**
+     * @return  A uniform value in [0, 1).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        // Gammas with too few bit transitions give poorly mixed sequences.
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,80 @@
+package DistributedRouting.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces the main loop of an agent. Agents call {@link #awaitTick()} once per
+ * move, and the scheduler decides how long that call blocks.
+ */
+public abstract class TickScheduler {
+
+    /**
+     * Blocks until the caller may make its next move.
+     *
+     * @throws InterruptedException     Thrown if interrupted while waiting.
+     */
+    public abstract void awaitTick() throws InterruptedException;
+
+    /**
+     * Ticks every period, catching up on ticks missed because a move took
+     * longer than a period. Each agent should get its own instance.
+     *
+     * @param period    Time between two ticks.
+     * @param unit      Unit of the period.
+     * @return          A fixed rate scheduler.
+     */
+    public static TickScheduler fixedRate(long period, TimeUnit unit) {
+        return new FixedRate(unit.toNanos(period), true);
+    }
+
+    /**
+     * Never blocks.
+     */
+    public static TickScheduler asFastAsPossible() {
+        return new TickScheduler() {
+            @Override
+            public void awaitTick() {}
+        };
+    }
+
+    /**
+     * Caps the combined rate of every agent sharing this instance. Ticks that
+     * go unused are lost rather than handed out later in a burst.
+     *
+     * @param ticksPerSecond    Maximum number of ticks per second across all callers.
+     * @return                  A rate limiting scheduler, safe to share between agents.
+     */
+    public static TickScheduler rateLimited(double ticksPerSecond) {
+        return new FixedRate(Math.round(TimeUnit.SECONDS.toNanos(1) / ticksPerSecond), false);
+    }
+
+    private static class FixedRate extends TickScheduler {
+        private final long intervalNanos;
+        private final boolean catchUp;
+        private final AtomicLong nextTick;
+
+        private FixedRate(long intervalNanos, boolean catchUp) {
+            this.intervalNanos = intervalNanos;
+            this.catchUp = catchUp;
+            this.nextTick = new AtomicLong(System.nanoTime());
+        }
+
+        @Override
+        public void awaitTick() throws InterruptedException {
+            long now = System.nanoTime();
+            long slot;
+            while (true) {
+                long next = nextTick.get();
+                slot = catchUp ? next : Math.max(next, now);
+                if (nextTick.compareAndSet(next, slot + intervalNanos)) {
+                    break;
+                }
+            }
+            long delay = slot + intervalNanos - now;
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package DistributedRouting.visual;
+
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.util.Logging;
+import org.graphstream.graph.Graph;
+import org.graphstream.ui.spriteManager.Sprite;
+import org.graphstream.ui.spriteManager.SpriteManager;
+
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Draws the state of a run on a GraphStream graph from a thread of its own.
+ * RPC handlers only append (ant, edge) pairs to a bounded ring; once per
+ * frame the renderer drains it, and however many moves arrived in between,
+ * every edge is recolored once, from its current pheromone level, and every
+ * ant's sprite is moved once, to the last edge it took. Nothing but this
+ * thread ever touches the GraphStream model.
+ */
+public class GraphRenderer implements Visualizer, Runnable {
+    private final Graph graphVis;
+    private final SpriteManager manager;
+    private final PheromoneStore pheromones;
+    private final long frameNanos;
+
+    private final MoveRing moves;
+    private final LongAdder dropped = new LongAdder();
+    private final Queue<String> screenshots = new ConcurrentLinkedQueue<>();
+
+    // State of the frame being drawn, only touched by the renderer thread.
+    private final BitSet dirtyEdges = new BitSet();
+    private final BitSet movedAnts = new BitSet();
+    private Sprite[] sprites = new Sprite[0];
+    private int[] antEdges = new int[0];
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * @param graphVis          Graph to draw on, with edges indexed by edge id
+     *                          as built by {@link DistributedRouting.AgentController#buildGraph}.
+     * @param pheromones        Levels the edges are colored by.
+     * @param framesPerSecond   How often the graph is redrawn.
+     * @param capacity          Number of moves buffered between two frames.
+     *                          Moves beyond that are dropped.
+     */
+    public GraphRenderer(Graph graphVis, PheromoneStore pheromones, int framesPerSecond, int capacity) {
+        this.graphVis = graphVis;
+        this.manager = new SpriteManager(graphVis);
+        this.pheromones = pheromones;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+        this.moves = new MoveRing(capacity);
+    }
+
+    public static String antNameForId(int id) {
+        return String.format("ant_%d", id);
+    }
+
+    /**
+     * Adds the sprite of an ant. Must be called before {@link #start()}.
+     *
+     * @param antId     Id of the ant.
+     * @param color     Fill color of the sprite, as a CSS color.
+     */
+    public void addAnt(int antId, String color) {
+        if (antId >= sprites.length) {
+            Sprite[] grown = new Sprite[Math.max(antId + 1, 2 * sprites.length)];
+            System.arraycopy(sprites, 0, grown, 0, sprites.length);
+            sprites = grown;
+            antEdges = new int[grown.length];
+        }
+        sprites[antId] = manager.addSprite(antNameForId(antId));
+        graphVis.setAttribute("ui.stylesheet",
+                "sprite#" + antNameForId(antId) + " { fill-color: " + color + "; }");
+    }
+
+    /**
+     * Starts drawing frames on a daemon thread.
+     */
+    public void start() {
+        thread = new Thread(this, "graph-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Draws a last frame and stops the renderer thread.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+        }
+        if (dropped.sum() > 0) {
+            Logging.logInfo("Renderer dropped " + dropped.sum() + " moves");
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void moved(int antId, int edgeId) {
+        if (!moves.offer(((long) antId << 32) | (edgeId & 0xffffffffL))) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void screenshot(String fileName) {
+        screenshots.add(fileName);
+    }
+
+    @Override
+    public void run() {
+        long nextFrame = System.nanoTime();
+        while (running) {
+            nextFrame += frameNanos;
+            long wait = nextFrame - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException ex) {
+                    break;
+                }
+            } else {
+                // Fell behind; skip the missed frames rather than drawing them back to back.
+                nextFrame = System.nanoTime();
+            }
+            renderFrame();
+        }
+        renderFrame();
+    }
+
+    /**
+     * Applies every move published since the last frame. Only called from the
+     * renderer thread.
+     */
+    void renderFrame() {
+        moves.drain(this::record);
+        try {
+            for (int edge = dirtyEdges.nextSetBit(0); edge >= 0; edge = dirtyEdges.nextSetBit(edge + 1)) {
+                // Scale the pheromone value
+                double visValue = Math.log(pheromones.get(edge) * (Math.exp(1) - 1) + 1);
+                graphVis.getEdge(edge).setAttribute("ui.color", visValue);
+            }
+            for (int ant = movedAnts.nextSetBit(0); ant >= 0; ant = movedAnts.nextSetBit(ant + 1)) {
+                Sprite sprite = sprites[ant];
+                String edge = graphVis.getEdge(antEdges[ant]).getId();
+                if (!sprite.attached() || !sprite.getAttachment().getId().equals(edge)) {
+                    sprite.attachToEdge(edge);
+                    sprite.setPosition(0.5);
+                }
+            }
+            String fileName;
+            while ((fileName = screenshots.poll()) != null) {
+                graphVis.setAttribute("ui.screenshot", fileName);
+            }
+        } catch (Exception ex) {
+            Logging.logError("Failed to render frame: " + ex.getMessage());
+        }
+        dirtyEdges.clear();
+        movedAnts.clear();
+    }
+
+    private void record(long event) {
+        int ant = (int) (event >>> 32);
+        int edge = (int) event;
+        dirtyEdges.set(edge);
+        // Ants without a sprite only color their edges.
+        if (ant < sprites.length && sprites[ant] != null) {
+            antEdges[ant] = edge;
+            movedAnts.set(ant);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package DistributedRouting.visual;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Bounded ring of long events with many producers and a single consumer.
+ * Every slot carries a sequence number telling producers when it is free
+ * and the consumer when it is full (Vyukov's bounded queue), so neither side
+ * takes a lock. A producer that finds the ring full drops its event instead
+ * of waiting.
+ */
+class MoveRing {
+    private final long[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer.
+    private long head = 0;
+
+    /**
+     * @param capacity  Number of slots, rounded up to a power of two.
+     */
+    MoveRing(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        events = new long[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.setPlain(i, i);
+        }
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return events.length;
+    }
+
+    /**
+     * Adds an event. Safe to call from any number of threads.
+     *
+     * @param event     Event to add.
+     * @return          False if the ring was full and the event was dropped.
+     */
+    boolean offer(long event) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[slot] = event;
+                    // Publishes the event to the consumer.
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Hands every event published so far to the consumer, oldest first. Must
+     * only be called from the consuming thread.
+     *
+     * @param consumer  Called once per event.
+     * @return          Number of events drained.
+     */
+    int drain(LongConsumer consumer) {
+        int drained = 0;
+        while (true) {
+            int slot = (int) (head & mask);
+            if (sequences.get(slot) != head + 1) {
+                return drained;
+            }
+            long event = events[slot];
+            // Hands the slot back to the producers one lap later.
+            sequences.set(slot, head + events.length);
+            head++;
+            drained++;
+            consumer.accept(event);
+        }
+    }
+}
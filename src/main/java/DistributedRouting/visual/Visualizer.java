@@ -0,0 +1,34 @@
+package DistributedRouting.visual;
+
+/**
+ * Receives what the controller wants drawn. Implementations must return
+ * quickly and must be safe to call from any RPC thread.
+ */
+public interface Visualizer {
+
+    /**
+     * Draws nothing, for headless runs.
+     */
+    Visualizer HEADLESS = new Visualizer() {
+        @Override
+        public void moved(int antId, int edgeId) {}
+
+        @Override
+        public void screenshot(String fileName) {}
+    };
+
+    /**
+     * Records that an ant moved along an edge.
+     *
+     * @param antId     Id of the ant.
+     * @param edgeId    Id of the edge in the {@link DistributedRouting.objects.RawGraph}.
+     */
+    void moved(int antId, int edgeId);
+
+    /**
+     * Asks for a picture of the graph to be saved.
+     *
+     * @param fileName  File to write the picture to.
+     */
+    void screenshot(String fileName);
+}
@@ -0,0 +1,33 @@
+package DistributedRouting;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the weighted next-hop sampling of AgentCore.
+ */
+class AgentCoreTest {
+
+    @Test
+    void samplesProportionallyToPheromone() {
+        AgentCore agent = new AgentCore(0, 1, 4, 11L);
+        int[] nodes = {2, 3, 4};
+        float[] levels = {0.1f, 0f, 0.3f};
+        int[] hits = new int[3];
+        for (int i = 0; i < 40000; i++) {
+            hits[agent.traverse(nodes, levels, 3)]++;
+        }
+        Assertions.assertEquals(0, hits[1]);
+        Assertions.assertEquals(0.25, hits[0] / 40000.0, 0.01);
+    }
+
+    @Test
+    void evaporatedEdgesArePickedUniformly() {
+        AgentCore agent = new AgentCore(0, 1, 4, 11L);
+        int[] hits = new int[2];
+        for (int i = 0; i < 10000; i++) {
+            hits[agent.traverse(new int[] {2, 3}, new float[] {0f, 0f}, 2)]++;
+        }
+        Assertions.assertEquals(0.5, hits[0] / 10000.0, 0.03);
+    }
+}
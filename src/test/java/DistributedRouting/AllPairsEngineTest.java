@@ -0,0 +1,50 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for AllPairsEngine.
+ */
+class AllPairsEngineTest {
+
+    @Test
+    void everyVertexGetsTheSameNumberOfAnts() {
+        RawGraph graph = SampleGraphs.gridGraph(3, 3, false);
+        List<AgentCore> colony = AllPairsEngine.createColony(graph, 4, 5, AgentCore.DEFAULT_DELTA);
+        Assertions.assertEquals(36, colony.size());
+        int[] heading = new int[10];
+        for (AgentCore agent : colony) {
+            Assertions.assertNotEquals(agent.getSource(), agent.getDestination());
+            heading[agent.getDestination()]++;
+        }
+        for (int vertex = 1; vertex <= 9; vertex++) {
+            Assertions.assertEquals(4, heading[vertex]);
+        }
+    }
+
+    @Test
+    void routesBetweenMostPairsAreShortest() {
+        // A cycle of nine vertices, where every pair has one shortest path.
+        RawGraph graph = SampleGraphs.unevenPath(3, 6).asUndirectedGraph();
+        AllPairsEngine engine = new AllPairsEngine(graph, 5, 11);
+        engine.run(2000);
+        Assertions.assertEquals(9, engine.getTable().numDestinations());
+        int shortest = 0;
+        for (int source = 1; source <= 9; source++) {
+            for (int dest = 1; dest <= 9; dest++) {
+                if (source == dest) continue;
+                int[] route = engine.route(source, dest);
+                Assertions.assertEquals(dest, route[route.length - 1], source + " to " + dest);
+                if (route.length - 1 == graph.distance(source, dest)) {
+                    shortest++;
+                }
+            }
+        }
+        Assertions.assertTrue(shortest >= 60, shortest + " of 72 routes are shortest");
+    }
+}
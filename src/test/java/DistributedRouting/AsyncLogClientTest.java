@@ -0,0 +1,134 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.LogGrpc;
+import DistributedRouting.grpc.MessageLog;
+import DistributedRouting.grpc.SaveGraphRequest;
+import DistributedRouting.grpc.StatusReply;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Unit tests for AsyncLogClient and ChannelPool.
+ */
+class AsyncLogClientTest {
+
+    // Holds the replies to SaveGraph until the test completes them.
+    private final List<StreamObserver<StatusReply>> pendingSaves = new CopyOnWriteArrayList<>();
+    private final AtomicInteger reported = new AtomicInteger();
+    // Calls started on each pooled channel.
+    private final AtomicIntegerArray calls = new AtomicIntegerArray(2);
+    private Server server;
+    private ChannelPool channels;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(new LogGrpc.LogImplBase() {
+            @Override
+            public void saveGraph(SaveGraphRequest req, StreamObserver<StatusReply> responseObserver) {
+                pendingSaves.add(responseObserver);
+            }
+
+            @Override
+            public StreamObserver<MessageLog> report(StreamObserver<StatusReply> responseObserver) {
+                return new StreamObserver<>() {
+                    @Override
+                    public void onNext(MessageLog move) {
+                        reported.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {}
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onNext(StatusReply.newBuilder().setSuccess(true).build());
+                        responseObserver.onCompleted();
+                    }
+                };
+            }
+        }).build().start();
+        ManagedChannel[] pooled = new ManagedChannel[2];
+        for (int i = 0; i < pooled.length; i++) {
+            int channel = i;
+            pooled[i] = InProcessChannelBuilder.forName(name).directExecutor()
+                    .intercept(new ClientInterceptor() {
+                        @Override
+                        public <Q, R> ClientCall<Q, R> interceptCall(MethodDescriptor<Q, R> method,
+                                                                     CallOptions options, Channel next) {
+                            calls.incrementAndGet(channel);
+                            return next.newCall(method, options);
+                        }
+                    })
+                    .build();
+        }
+        channels = new ChannelPool(pooled);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channels.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void savesBeyondTheWindowAreDropped() throws Exception {
+        AsyncLogClient client = new AsyncLogClient(channels, 2);
+        Assertions.assertTrue(client.saveGraph(100));
+        Assertions.assertTrue(client.saveGraph(200));
+        Assertions.assertFalse(client.saveGraph(300));
+        Assertions.assertEquals(2, client.getInFlight());
+        Assertions.assertEquals(1, client.getDroppedSaves());
+        Assertions.assertFalse(client.awaitIdle(10, TimeUnit.MILLISECONDS));
+
+        completeSaves();
+        Assertions.assertTrue(client.awaitIdle(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(client.saveGraph(400));
+        completeSaves();
+    }
+
+    private void completeSaves() {
+        for (StreamObserver<StatusReply> reply : pendingSaves) {
+            reply.onNext(StatusReply.newBuilder().setSuccess(true).build());
+            reply.onCompleted();
+        }
+        pendingSaves.clear();
+    }
+
+    @Test
+    void reportersShareThePooledChannels() throws Exception {
+        Assertions.assertNotSame(channels.next(), channels.next());
+        AsyncLogClient client = new AsyncLogClient(channels, 4);
+        AsyncLogClient.Reporter[] reporters = {client.report(0), client.report(1), client.report(2),
+                client.report(3)};
+        // Streams are spread over every channel of the pool.
+        Assertions.assertEquals(2, calls.get(0));
+        Assertions.assertEquals(2, calls.get(1));
+        for (int i = 0; i < 1000; i++) {
+            reporters[i % reporters.length].send(MessageLog.newBuilder()
+                    .setAntId(i % reporters.length).setPrevVertex(0).setNextVertex(1).setModifier(1).build());
+        }
+        for (AsyncLogClient.Reporter reporter : reporters) {
+            Assertions.assertTrue(reporter.close(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1000, reported.get());
+    }
+}
@@ -0,0 +1,71 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for Checkpoint.
+ */
+class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoredRunContinuesExactly() throws IOException {
+        RawGraph graph = SampleGraphs.erdosReyniGraph(30, 0.2f, new Random(42)).asUndirectedGraph();
+        SimulationEngine engine = new SimulationEngine(graph, 15, 42);
+        engine.run(300);
+        Path path = directory.resolve("run.ckpt");
+        Checkpoint.write(engine, path);
+
+        SimulationResult expected = engine.run(300);
+        SimulationResult resumed = Checkpoint.restore(path).run(300);
+        Assertions.assertEquals(expected.getTicks(), resumed.getTicks());
+        Assertions.assertEquals(expected.getSteps(), resumed.getSteps());
+        Assertions.assertEquals(expected.getArrivals(), resumed.getArrivals());
+        Assertions.assertArrayEquals(expected.getPheromoneLevels(), resumed.getPheromoneLevels());
+    }
+
+    @Test
+    void restoredRunCanBeSavedOverItsCheckpoint() throws IOException {
+        RawGraph graph = SampleGraphs.erdosReyniGraph(30, 0.2f, new Random(42)).asUndirectedGraph();
+        SimulationEngine engine = new SimulationEngine(graph, 15, 42);
+        engine.run(100);
+        Path path = directory.resolve("run.ckpt");
+        Checkpoint.write(engine, path);
+
+        SimulationEngine restored = Checkpoint.restore(path);
+        restored.run(100);
+        Checkpoint.write(restored, path);
+
+        SimulationResult expected = engine.run(200);
+        SimulationResult resumed = Checkpoint.restore(path).run(100);
+        Assertions.assertEquals(expected.getSteps(), resumed.getSteps());
+        Assertions.assertArrayEquals(expected.getPheromoneLevels(), resumed.getPheromoneLevels());
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        SimulationEngine engine = new SimulationEngine(SampleGraphs.doublePath.asUndirectedGraph(), 4, 7);
+        engine.run(10);
+        Path path = directory.resolve("run.ckpt");
+        Checkpoint.write(engine, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+        Assertions.assertThrows(IOException.class, () -> Checkpoint.restore(path));
+    }
+}
@@ -0,0 +1,61 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ConvergenceMonitor, on hand-set levels and on a full run.
+ */
+class ConvergenceMonitorTest {
+
+    @Test
+    void convergesOnceTheRouteHoldsForTheWindow() {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), 0.1f, 1f, () -> 0);
+        for (int[] edge : new int[][]{{1, 2}, {2, 3}, {3, 6}}) {
+            pheromones.set(graph.edgeId(edge[0], edge[1]), 0.9f);
+        }
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, pheromones, 5, 0.5, 1.0);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertFalse(monitor.sample());
+        }
+        Assertions.assertTrue(monitor.sample());
+        Assertions.assertArrayEquals(new int[]{1, 2, 3, 6}, monitor.getDominantRoute());
+        Assertions.assertEquals(0.9 / 1.0, monitor.getConcentration(), 1e-6);
+    }
+
+    @Test
+    void routeChangesResetStability() {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), 0.1f, 1f, () -> 0);
+        pheromones.set(graph.edgeId(1, 2), 0.5f);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, pheromones, 4, 0.5, 0.75);
+        for (int i = 0; i < 4; i++) {
+            monitor.sample();
+        }
+        Assertions.assertEquals(1.0, monitor.getStability());
+
+        pheromones.set(graph.edgeId(1, 4), 0.9f);
+        monitor.onDeposit(graph.edgeId(1, 4));
+        monitor.sample();
+        Assertions.assertArrayEquals(new int[]{1, 4, 5, 6}, monitor.getDominantRoute());
+        Assertions.assertEquals(0.25, monitor.getStability());
+    }
+
+    @Test
+    void earlyStopLeavesTheRunUnchanged() {
+        RawGraph graph = SampleGraphs.unevenPath(3, 8).asUndirectedGraph();
+        SimulationEngine monitored = new SimulationEngine(graph, 10, 11);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, monitored.getPheromones());
+        SimulationResult early = monitored.runUntilConverged(20000, monitor, 10);
+        Assertions.assertTrue(monitor.isConverged());
+        Assertions.assertTrue(early.getTicks() < 20000);
+
+        SimulationResult plain = new SimulationEngine(graph, 10, 11).run(early.getTicks());
+        Assertions.assertEquals(plain.getSteps(), early.getSteps());
+        Assertions.assertArrayEquals(plain.getPheromoneLevels(), early.getPheromoneLevels());
+    }
+}
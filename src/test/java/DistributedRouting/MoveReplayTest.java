@@ -0,0 +1,113 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.MoveLog;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.Metrics;
+import DistributedRouting.visual.Visualizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit tests for MoveLog and MoveReplay.
+ */
+class MoveReplayTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayRebuildsLevels() throws IOException {
+        RawGraph graph = SampleGraphs.erdosReyniGraph(30, 0.2f, new Random(3)).asUndirectedGraph();
+        int[] tick = {5};
+        PheromoneStore live = new PheromoneStore(graph.numEdges(), 0.01f, 0.9f, () -> tick[0]);
+        Path path = directory.resolve("moves.log");
+        MoveLog log = MoveLog.create(path, graph, live, 0.01f, 1000);
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            if (random.nextInt(10) == 0) {
+                tick[0]++;
+            }
+            int edge = random.nextInt(graph.numEdges());
+            float modifier = 1 + random.nextInt(4);
+            log.append(tick[0], i % 7, graph.edgeSource(edge), graph.edgeTarget(edge), edge, modifier);
+            live.deposit(edge, 0.01f * modifier);
+        }
+        log.close();
+
+        MoveLog.Reader reader = MoveLog.open(path);
+        Assertions.assertEquals(5000, reader.size());
+        Assertions.assertEquals(graph.numEdges(), reader.getGraph().numEdges());
+        MoveReplay replay = new MoveReplay(reader);
+        Metrics metrics = new Metrics();
+        Assertions.assertEquals(2000, replay.replay(2000, Visualizer.HEADLESS, metrics, 0));
+        Assertions.assertEquals(3000, replay.replay(Visualizer.HEADLESS, metrics, 0));
+        Assertions.assertEquals(5000, metrics.getSteps());
+        Assertions.assertArrayEquals(live.snapshot(), replay.getPheromones().snapshot());
+    }
+
+    @Test
+    void readsLogThatWasNotClosed() throws IOException {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), 0.01f, 0.9f, () -> 0);
+        Path path = directory.resolve("moves.log");
+        MoveLog log = MoveLog.create(path, graph, pheromones, 0.01f, 1000);
+        for (int i = 0; i < 3; i++) {
+            log.append(i, 0, graph.edgeSource(i), graph.edgeTarget(i), i, 1);
+        }
+
+        // As if the run had been killed here.
+        MoveLog.Reader reader = MoveLog.open(path);
+        Assertions.assertEquals(3, reader.size());
+        Assertions.assertEquals(0, reader.tick(0));
+        Assertions.assertEquals(2, reader.tick(2));
+        Assertions.assertEquals(2, reader.edgeId(2));
+
+        log.close();
+        Assertions.assertEquals(3, MoveLog.open(path).size());
+    }
+
+    @Test
+    void closingDropsRacingAppends() throws Exception {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), 0.01f, 0.9f, () -> 0);
+        Path path = directory.resolve("moves.log");
+        MoveLog log = MoveLog.create(path, graph, pheromones, 0.01f, 1000);
+        AtomicLong recorded = new AtomicLong();
+        Thread[] appenders = new Thread[4];
+        for (int t = 0; t < appenders.length; t++) {
+            int antId = t;
+            appenders[t] = new Thread(() -> {
+                for (int i = 0; ; i++) {
+                    if (!log.append(i, antId, graph.edgeSource(0), graph.edgeTarget(0), 0, 1)) {
+                        return;
+                    }
+                    recorded.incrementAndGet();
+                }
+            });
+            appenders[t].start();
+        }
+        while (recorded.get() < 10000) {
+            Thread.onSpinWait();
+        }
+        log.close();
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+
+        Assertions.assertFalse(log.append(0, 0, graph.edgeSource(0), graph.edgeTarget(0), 0, 1));
+        Assertions.assertEquals(recorded.get(), log.size());
+        MoveLog.Reader reader = MoveLog.open(path);
+        Assertions.assertEquals(recorded.get(), reader.size());
+        for (long i = 0; i < reader.size(); i++) {
+            Assertions.assertEquals(0, reader.edgeId(i));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package DistributedRouting;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Unit tests for ParameterSweep and SimulationConfig.
+ */
+class ParameterSweepTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultsMatchTheSeededEngine() {
+        SimulationConfig config = new SimulationConfig.Builder().setSeed(42).setNumVertices(30).build();
+        SimulationResult expected = new SimulationEngine(config.buildGraph(), 15, 42).run(300);
+        SimulationResult actual = config.createEngine(config.buildGraph()).run(300);
+        Assertions.assertEquals(expected.getSteps(), actual.getSteps());
+        Assertions.assertArrayEquals(expected.getPheromoneLevels(), actual.getPheromoneLevels());
+    }
+
+    @Test
+    void parallelRunsMatchSequentialOnes() throws Exception {
+        List<SimulationConfig> configs = List.of(new SimulationConfig.Builder().setMaxTicks(500).build());
+        configs = ParameterSweep.vary(configs, List.of(1L, 2L, 3L), SimulationConfig.Builder::setSeed);
+        configs = ParameterSweep.vary(configs, List.of(0.95f, 0.97f), SimulationConfig.Builder::setDecay);
+        Assertions.assertEquals(6, configs.size());
+        Assertions.assertEquals(0.97f, configs.get(3).getDecay());
+        Assertions.assertEquals(2L, configs.get(3).getSeed());
+
+        List<ParameterSweep.Result> results = new ParameterSweep(configs, 3).run();
+        for (int i = 0; i < configs.size(); i++) {
+            ParameterSweep.Result sequential = ParameterSweep.run(configs.get(i));
+            Assertions.assertSame(configs.get(i), results.get(i).getConfig());
+            Assertions.assertEquals(sequential.getRun().getSteps(), results.get(i).getRun().getSteps());
+            Assertions.assertEquals(sequential.getRouteLength(), results.get(i).getRouteLength());
+        }
+
+        Path csv = directory.resolve("sweep.csv");
+        ParameterSweep.writeCsv(results, csv);
+        Assertions.assertEquals(7, Files.readAllLines(csv).size());
+    }
+}
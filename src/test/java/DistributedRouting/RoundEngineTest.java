@@ -0,0 +1,35 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for the round-based RoundEngine. Runs must not depend on how
+ * many threads pick the moves.
+ */
+class RoundEngineTest {
+
+    private static SimulationResult run(int parallelism) {
+        RawGraph graph = SampleGraphs.erdosReyniGraph(40, 0.15f, new Random(3)).asUndirectedGraph();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return new RoundEngine(graph, AgentCore.createColony(graph, 2000, 3), 2, pool).run(50);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void runsAreReproducibleAcrossParallelism() {
+        SimulationResult sequential = run(1);
+        SimulationResult parallel = run(4);
+        Assertions.assertEquals(sequential.getSteps(), parallel.getSteps());
+        Assertions.assertEquals(sequential.getArrivals(), parallel.getArrivals());
+        Assertions.assertArrayEquals(sequential.getPheromoneLevels(), parallel.getPheromoneLevels());
+    }
+}
@@ -0,0 +1,127 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.GraphPartition;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import DistributedRouting.util.TickScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Unit tests for the graph partition and for shards handing ants to each
+ * other over localhost.
+ */
+class ShardServerTest {
+
+    private static final int BASE_PORT = 7900;
+
+    @Test
+    void everyEdgeBelongsToTheShardsOfItsEndpoints() {
+        RawGraph graph = SampleGraphs.gridGraph(5, 5, false);
+        GraphPartition[] partitions = new GraphPartition[3];
+        for (int shard = 0; shard < 3; shard++) {
+            partitions[shard] = new GraphPartition(graph, shard, 3);
+        }
+        for (int e = 0; e < graph.numEdges(); e++) {
+            int source = graph.edgeSource(e);
+            int target = graph.edgeTarget(e);
+            for (GraphPartition partition : partitions) {
+                RawGraph local = partition.getLocalGraph();
+                boolean held = partition.owns(source) || partition.owns(target);
+                Assertions.assertEquals(held, local.edgeId(source, target) >= 0);
+                if (held) {
+                    boolean cut = GraphPartition.owner(source, 3) != GraphPartition.owner(target, 3);
+                    Assertions.assertEquals(cut, partition.isCut(local.edgeId(source, target)));
+                }
+            }
+        }
+        // Owned vertices keep their whole neighborhood.
+        Assertions.assertEquals(graph.degree(8), partitions[GraphPartition.owner(8, 3)].getLocalGraph().degree(8));
+    }
+
+    @Test
+    void antsMigrateWithoutBeingLost() throws Exception {
+        RawGraph graph = SampleGraphs.gridGraph(4, 4, false);
+        int numAnts = 20;
+        ShardServer[] shards = startShards(graph, numAnts);
+        try {
+            long steps = 0;
+            for (SimulationResult result : runAndFinish(shards)) {
+                steps += result.getSteps();
+            }
+            Assertions.assertTrue(steps > 0);
+            Assertions.assertEquals(numAnts, shards[0].numAgents() + shards[1].numAgents());
+        } finally {
+            for (ShardServer shard : shards) {
+                shard.close();
+            }
+        }
+    }
+
+    @Test
+    void cutEdgesAgreeAfterReconciliation() throws Exception {
+        RawGraph graph = SampleGraphs.gridGraph(4, 4, false);
+        ShardServer[] shards = startShards(graph, 6);
+        try {
+            runAndFinish(shards);
+            GraphPartition partition = shards[0].getPartition();
+            RawGraph local = partition.getLocalGraph();
+            RawGraph other = shards[1].getPartition().getLocalGraph();
+            int cutEdges = 0;
+            for (int e = 0; e < local.numEdges(); e++) {
+                if (!partition.isCut(e)) continue;
+                int mirror = other.edgeId(local.edgeSource(e), local.edgeTarget(e));
+                Assertions.assertEquals(shards[0].getPheromones().get(e), shards[1].getPheromones().get(mirror),
+                        1e-4f);
+                cutEdges++;
+            }
+            Assertions.assertTrue(cutEdges > 0);
+        } finally {
+            for (ShardServer shard : shards) {
+                shard.close();
+            }
+        }
+    }
+
+    private static ShardServer[] startShards(RawGraph graph, int numAnts) throws IOException {
+        ShardServer[] shards = new ShardServer[2];
+        for (int shard = 0; shard < 2; shard++) {
+            shards[shard] = new ShardServer(graph, shard, 2, AgentCore.createColony(graph, numAnts, 3), 2, BASE_PORT)
+                    .start();
+        }
+        return shards;
+    }
+
+    /**
+     * Runs every shard on its own thread, as separate processes would, and
+     * finishes them together.
+     */
+    private static List<SimulationResult> runAndFinish(ShardServer[] shards) throws Exception {
+        List<CompletableFuture<SimulationResult>> runs = new ArrayList<>();
+        for (ShardServer shard : shards) {
+            runs.add(CompletableFuture.supplyAsync(() -> runAndFinish(shard)));
+        }
+        List<SimulationResult> results = new ArrayList<>();
+        for (CompletableFuture<SimulationResult> run : runs) {
+            results.add(run.get());
+        }
+        return results;
+    }
+
+    private static SimulationResult runAndFinish(ShardServer shard) {
+        try {
+            SimulationResult result = shard.run(200, TickScheduler.asFastAsPossible());
+            Assertions.assertTrue(shard.finish(10, TimeUnit.SECONDS));
+            return result;
+        } catch (InterruptedException | TimeoutException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
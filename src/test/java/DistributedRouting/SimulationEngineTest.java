@@ -0,0 +1,33 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for the headless SimulationEngine.
+ */
+class SimulationEngineTest {
+
+    private static RawGraph graph(long seed) {
+        return SampleGraphs.erdosReyniGraph(30, 0.2f, new Random(seed)).asUndirectedGraph();
+    }
+
+    @Test
+    void sameSeedGivesSameRun() {
+        SimulationResult first = new SimulationEngine(graph(42), 15, 42).run(500);
+        SimulationResult second = new SimulationEngine(graph(42), 15, 42).run(500);
+        Assertions.assertEquals(first.getSteps(), second.getSteps());
+        Assertions.assertEquals(first.getArrivals(), second.getArrivals());
+        Assertions.assertArrayEquals(first.getPheromoneLevels(), second.getPheromoneLevels());
+    }
+
+    @Test
+    void everyAntMovesEveryTick() {
+        SimulationResult result = new SimulationEngine(SampleGraphs.doublePath.asUndirectedGraph(), 4, 7).run(100);
+        Assertions.assertEquals(400, result.getSteps());
+    }
+}
@@ -0,0 +1,51 @@
+package DistributedRouting;
+
+import DistributedRouting.objects.PheromoneSnapshot;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.visual.Visualizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for SnapshotExporter and the binary pheromone snapshot format.
+ */
+class SnapshotExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotRoundTrips() throws IOException {
+        PheromoneStore pheromones = new PheromoneStore(5, 0.5f, 0.9f, () -> 3);
+        pheromones.set(2, 0.25f);
+        Path path = directory.resolve("snapshot.bin");
+        PheromoneSnapshot.of(700, pheromones).write(path);
+
+        PheromoneSnapshot read = PheromoneSnapshot.read(path);
+        Assertions.assertEquals(700, read.getIteration());
+        Assertions.assertEquals(3, read.getTick());
+        Assertions.assertEquals(0.9f, read.getDecay());
+        Assertions.assertArrayEquals(new float[]{0.5f, 0.5f, 0.25f, 0.5f, 0.5f}, read.getLevels());
+    }
+
+    @Test
+    void exportsEachIterationOnce() throws Exception {
+        PheromoneStore pheromones = new PheromoneStore(3, 0.5f, 0.9f, () -> 0);
+        SnapshotExporter exporter = new SnapshotExporter(pheromones, Visualizer.HEADLESS, directory);
+        Assertions.assertTrue(exporter.request(100));
+        Assertions.assertFalse(exporter.request(100));
+        Assertions.assertTrue(exporter.request(200));
+        Assertions.assertFalse(exporter.request(100));
+        exporter.close();
+
+        try (var files = Files.list(directory)) {
+            Assertions.assertEquals(2, files.count());
+        }
+        Assertions.assertEquals(200, PheromoneSnapshot.read(directory.resolve("pheromones_200.bin")).getIteration());
+    }
+}
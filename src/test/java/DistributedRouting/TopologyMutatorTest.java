@@ -0,0 +1,138 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.MutationGrpc;
+import DistributedRouting.grpc.MutationReply;
+import DistributedRouting.grpc.MutationRequest;
+import DistributedRouting.grpc.TopologyGrpc;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for TopologyMutator and the components following its changes.
+ */
+class TopologyMutatorTest {
+
+    private final RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+    private final PheromoneStore pheromones = new PheromoneStore(graph.numEdges() + 2, 0.1f, 1f, () -> 0);
+
+    @Test
+    void routeFailureIsConvergedFrom() {
+        for (int[] edge : new int[][]{{1, 2}, {2, 3}, {3, 6}}) {
+            pheromones.set(graph.edgeId(edge[0], edge[1]), 0.9f);
+        }
+        pheromones.set(graph.edgeId(5, 6), 0.7f);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, pheromones, 3, 0.5, 1.0);
+        TopologyMutator mutator = new TopologyMutator(graph, pheromones, 0.1f)
+                .addListener(monitor::topologyChanged);
+        for (int i = 0; i < 3; i++) {
+            monitor.sample();
+        }
+        Assertions.assertTrue(monitor.isConverged());
+
+        float level = pheromones.get(graph.numEdges() - 1);
+        mutator.removeEdge(2, 3);
+        RawGraph changed = mutator.getGraph();
+        Assertions.assertEquals(graph.numEdges() - 1, changed.numEdges());
+        // The last edge moved into the freed slot with its level.
+        Assertions.assertEquals(level, pheromones.get(graph.edgeId(2, 3)));
+        Assertions.assertFalse(monitor.isConverged());
+
+        // The colony now leaves the dead end and settles on the other path.
+        pheromones.set(changed.edgeId(1, 2), 0.1f);
+        pheromones.set(changed.edgeId(1, 4), 0.9f);
+        pheromones.set(changed.edgeId(4, 5), 0.9f);
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertFalse(monitor.sample());
+        }
+        Assertions.assertTrue(monitor.sample());
+        Assertions.assertArrayEquals(new int[]{1, 4, 5, 6}, monitor.getDominantRoute());
+        Assertions.assertEquals(1, monitor.getReconvergence().count());
+    }
+
+    @Test
+    void removingAVertexIsOneChange() {
+        for (int e = 0; e < graph.numEdges(); e++) {
+            pheromones.set(e, 0.01f * (e + 1));
+        }
+        int[] changes = {0};
+        TopologyMutator mutator = new TopologyMutator(graph, pheromones, 0.1f)
+                .addListener(next -> changes[0]++);
+        Assertions.assertEquals(graph.degree(3), mutator.removeVertex(3));
+        Assertions.assertEquals(1, changes[0]);
+
+        // Every edge kept its level under its new id.
+        RawGraph changed = mutator.getGraph();
+        Assertions.assertFalse(changed.hasVertex(3));
+        for (int e = 0; e < changed.numEdges(); e++) {
+            int old = graph.edgeId(changed.edgeSource(e), changed.edgeTarget(e));
+            Assertions.assertEquals(0.01f * (old + 1), pheromones.get(e));
+        }
+    }
+
+    @Test
+    void refusedChangesLeaveGraphAlone() {
+        int[] changes = {0};
+        TopologyMutator mutator = new TopologyMutator(graph, pheromones, 0.1f)
+                .addListener(next -> changes[0]++)
+                .refuseChanges("Recorded");
+        Assertions.assertFalse(mutator.acceptsChanges());
+        Assertions.assertThrows(IllegalStateException.class, () -> mutator.removeEdge(2, 3));
+        Assertions.assertThrows(IllegalStateException.class, () -> mutator.addEdge(2, 5));
+        Assertions.assertSame(graph, mutator.getGraph());
+        Assertions.assertEquals(0, changes[0]);
+    }
+
+    @Test
+    void changesReachSubscribersOverRpc() throws Exception {
+        ConvergenceMonitor monitor = new ConvergenceMonitor(graph, pheromones);
+        TopologyPublisher publisher = new TopologyPublisher(graph, pheromones, monitor, 0.05f);
+        TopologyMutator mutator = new TopologyMutator(graph, pheromones, 0.5f)
+                .addListener(publisher::topologyChanged);
+        String name = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(publisher).addService(mutator).build().start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        try {
+            TopologyCache cache = TopologyCache.subscribe(TopologyGrpc.newStub(channel))
+                    .awaitReady(5, TimeUnit.SECONDS);
+            MutationGrpc.MutationBlockingStub stub = MutationGrpc.newBlockingStub(channel);
+            MutationReply added = stub.mutate(MutationRequest.newBuilder()
+                    .setKind(MutationRequest.Kind.ADD_EDGE).setSource(2).setTarget(5).build());
+            Assertions.assertTrue(added.getSuccess());
+            Assertions.assertEquals(graph.numEdges(), added.getEdgeId());
+            MutationReply removed = stub.mutate(MutationRequest.newBuilder()
+                    .setKind(MutationRequest.Kind.REMOVE_VERTEX).setVertex(3).build());
+            Assertions.assertTrue(removed.getSuccess());
+            Assertions.assertEquals(5, removed.getNumVertices());
+            Assertions.assertEquals(graph.numEdges() - 1, removed.getNumEdges());
+            MutationReply refused = stub.mutate(MutationRequest.newBuilder()
+                    .setKind(MutationRequest.Kind.REMOVE_EDGE).setSource(2).setTarget(3).build());
+            Assertions.assertFalse(refused.getSuccess());
+
+            // Every slot of the store is sent again.
+            Assertions.assertEquals(pheromones.size(), publisher.publish());
+            RawGraph copy = cache.getGraph();
+            RawGraph changed = mutator.getGraph();
+            Assertions.assertEquals(changed.numEdges(), copy.numEdges());
+            for (int e = 0; e < changed.numEdges(); e++) {
+                Assertions.assertEquals(changed.edgeSource(e), copy.edgeSource(e));
+                Assertions.assertEquals(changed.edgeTarget(e), copy.edgeTarget(e));
+                Assertions.assertEquals(pheromones.get(e), cache.getPheromones().get(e));
+            }
+            Assertions.assertEquals(0.5f, cache.getPheromones().get(copy.edgeId(2, 5)));
+        } finally {
+            publisher.close();
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+}
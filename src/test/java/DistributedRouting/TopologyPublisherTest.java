@@ -0,0 +1,80 @@
+package DistributedRouting;
+
+import DistributedRouting.grpc.TopologyGrpc;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for TopologyPublisher and the TopologyCache of its subscribers.
+ */
+class TopologyPublisherTest {
+
+    private final RawGraph graph = SampleGraphs.erdosReyniGraph(20, 0.3f, new Random(5)).asUndirectedGraph();
+    private final int[] tick = {0};
+    private final PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), 0.1f, 0.9f, () -> tick[0]);
+    private final ConvergenceMonitor monitor = new ConvergenceMonitor(graph, pheromones, 1, 0, 0);
+    private final TopologyPublisher publisher = new TopologyPublisher(graph, pheromones, monitor, 0.05f);
+    private Server server;
+    private ManagedChannel channel;
+
+    private TopologyCache subscribe() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(publisher).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        return TopologyCache.subscribe(TopologyGrpc.newStub(channel)).awaitReady(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.close();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void cacheFollowsLevelsWithinThreshold() throws Exception {
+        tick[0] = 3;
+        pheromones.deposit(0, 0.2f);
+        TopologyCache cache = subscribe();
+        Assertions.assertEquals(graph.numEdges(), cache.getGraph().numEdges());
+        for (int e = 0; e < graph.numEdges(); e++) {
+            Assertions.assertEquals(graph.edgeSource(e), cache.getGraph().edgeSource(e));
+            Assertions.assertEquals(graph.edgeTarget(e), cache.getGraph().edgeTarget(e));
+        }
+
+        // The first update holds the levels as last published; the deposit goes out next.
+        Assertions.assertEquals(1, publisher.publish());
+        Assertions.assertEquals(pheromones.get(0), cache.getPheromones().get(0));
+
+        // Too small to send, until it adds up with the next one.
+        pheromones.deposit(1, 0.001f);
+        Assertions.assertEquals(0, publisher.publish());
+        pheromones.deposit(1, 0.01f);
+        tick[0] = 7;
+        Assertions.assertEquals(1, publisher.publish());
+        for (int e = 0; e < graph.numEdges(); e++) {
+            Assertions.assertEquals(pheromones.get(e), cache.getPheromones().get(e));
+        }
+        Assertions.assertFalse(cache.isStopped());
+    }
+
+    @Test
+    void subscribersStopOnConvergence() throws Exception {
+        TopologyCache cache = subscribe();
+        monitor.sample();
+        Assertions.assertTrue(monitor.isConverged());
+        publisher.publish();
+        Assertions.assertTrue(cache.isStopped());
+    }
+}
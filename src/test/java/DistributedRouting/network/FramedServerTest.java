@@ -0,0 +1,86 @@
+package DistributedRouting.network;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for FramedServer and FramedStepTransport.
+ */
+class FramedServerTest {
+
+    // Offers currentVertex + 1 .. currentVertex + antId, each at a level of
+    // the modifier, and stops ants that report a save.
+    private final StepHandler handler = (antId, previousVertex, currentVertex, modifier, saveIteration, out) -> {
+        out.clear();
+        for (int i = 1; i <= antId; i++) {
+            out.add(currentVertex + i, modifier);
+        }
+        out.setStop(saveIteration != 0);
+    };
+    private final FramedServer server;
+
+    FramedServerTest() throws Exception {
+        server = new FramedServer(handler, 0).start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void manyClientsStepConcurrently() throws Exception {
+        List<FramedStepTransport> clients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            clients.add(new FramedStepTransport(new InetSocketAddress("localhost", server.getPort())));
+        }
+        Candidates candidates = new Candidates();
+        for (int round = 0; round < 3; round++) {
+            for (int id = 0; id < clients.size(); id++) {
+                // Ant 40 and up get more candidates than the server's first reply buffer holds.
+                clients.get(id).step(id, -1, round, 0.5f, round == 2 ? 100 : 0, candidates);
+                Assertions.assertEquals(id, candidates.count());
+                for (int i = 0; i < id; i++) {
+                    Assertions.assertEquals(round + i + 1, candidates.nodes()[i]);
+                    Assertions.assertEquals(0.5f, candidates.levels()[i]);
+                }
+                Assertions.assertEquals(round == 2, candidates.isStop());
+            }
+        }
+        for (FramedStepTransport client : clients) {
+            client.close();
+        }
+    }
+
+    @Test
+    void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+        int requests = 100;
+        ByteBuffer frames = ByteBuffer.allocate(requests * FramedServer.REQUEST_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < requests; i++) {
+            frames.putInt(2).putInt(-1).putInt(i).putFloat(1).putInt(0).putInt(0);
+        }
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.getOutputStream().write(frames.array());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] reply = new byte[FramedServer.HEADER_BYTES + 2 * FramedServer.CANDIDATE_BYTES];
+            for (int i = 0; i < requests; i++) {
+                in.readFully(reply);
+                ByteBuffer buffer = ByteBuffer.wrap(reply).order(ByteOrder.LITTLE_ENDIAN);
+                Assertions.assertEquals(2, buffer.getInt());
+                Assertions.assertEquals(0, buffer.getInt());
+                Assertions.assertEquals(i + 1, buffer.getInt());
+                Assertions.assertEquals(1f, buffer.getFloat());
+                Assertions.assertEquals(i + 2, buffer.getInt());
+            }
+        }
+    }
+}
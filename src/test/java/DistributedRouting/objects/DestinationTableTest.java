@@ -0,0 +1,42 @@
+package DistributedRouting.objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for DestinationTable, checking it against PheromoneStore.
+ */
+class DestinationTableTest {
+
+    @Test
+    void rowsAreIndependent() {
+        DestinationTable table = new DestinationTable(3, new int[]{7, 2}, 0.1f, 0.5f);
+        Assertions.assertEquals(0, table.row(7));
+        Assertions.assertEquals(1, table.row(2));
+        Assertions.assertEquals(-1, table.row(3));
+        Assertions.assertEquals(-1, table.row(100));
+
+        table.deposit(1, 2, 0.3f);
+        Assertions.assertEquals(0.4f, table.get(1, 2), 1e-6);
+        Assertions.assertEquals(0.1f, table.get(0, 2), 1e-6);
+        Assertions.assertEquals(0.1f, table.get(1, 1), 1e-6);
+    }
+
+    @Test
+    void matchesPheromoneStoreAcrossRenormalization() {
+        AtomicInteger clock = new AtomicInteger();
+        PheromoneStore store = new PheromoneStore(2, 0.5f, 0.9f, clock::get);
+        DestinationTable table = new DestinationTable(2, new int[]{1}, 0.5f, 0.9f);
+        // 0.9^200 is far below the scale at which the table renormalizes.
+        for (int t = 0; t < 200; t++) {
+            float level = (t % 3 == 0) ? 0.3f : 0.02f;
+            Assertions.assertEquals(store.deposit(0, level), table.deposit(0, 0, level), 1e-5);
+            Assertions.assertEquals(store.get(1), table.get(0, 1), 1e-5);
+            clock.incrementAndGet();
+            table.decay();
+        }
+        Assertions.assertTrue(table.get(0, 0) <= 1);
+    }
+}
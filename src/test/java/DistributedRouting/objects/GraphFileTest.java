@@ -0,0 +1,84 @@
+package DistributedRouting.objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for the binary GraphFile format and the edge-list importer.
+ */
+class GraphFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readGraphMatchesWrittenGraph() throws IOException {
+        RawGraph graph = SampleGraphs.fastErdosReyniGraph(500, 0.02, 4, false);
+        Path path = directory.resolve("graph.bin");
+        GraphFile.write(graph, path);
+        RawGraph read = GraphFile.read(path);
+
+        Assertions.assertEquals(graph.getSource(), read.getSource());
+        Assertions.assertEquals(graph.getDest(), read.getDest());
+        Assertions.assertEquals(graph.numEdges(), read.numEdges());
+        Assertions.assertEquals(graph.maxDegree(), read.maxDegree());
+        Assertions.assertArrayEquals(graph.getVertices(), read.getVertices());
+        for (int v = 0; v <= 500; v++) {
+            Assertions.assertEquals(graph.degree(v), read.degree(v));
+            for (int i = graph.neighborsStart(v); i < graph.neighborsEnd(v); i++) {
+                Assertions.assertEquals(graph.neighborAt(i), read.neighborAt(i));
+                Assertions.assertEquals(graph.edgeIdAt(i), read.edgeIdAt(i));
+            }
+        }
+    }
+
+    @Test
+    void mappedGraphMatchesWrittenGraph() throws IOException {
+        RawGraph graph = SampleGraphs.fastErdosReyniGraph(500, 0.02, 4, true);
+        Path path = directory.resolve("graph.bin");
+        GraphFile.write(graph, path);
+        MappedGraph mapped = GraphFile.map(path);
+
+        Assertions.assertEquals(graph.getSource(), mapped.getSource());
+        Assertions.assertEquals(graph.getDest(), mapped.getDest());
+        Assertions.assertEquals(graph.isUndirected(), mapped.isUndirected());
+        Assertions.assertEquals(graph.numVertices(), mapped.numVertices());
+        Assertions.assertEquals(graph.numEdges(), mapped.numEdges());
+        Assertions.assertEquals(graph.maxDegree(), mapped.maxDegree());
+        for (int v = 0; v <= 500; v++) {
+            Assertions.assertEquals(graph.degree(v), mapped.degree(v));
+            Assertions.assertEquals(graph.neighborsStart(v), mapped.neighborsStart(v));
+            for (int i = graph.neighborsStart(v); i < graph.neighborsEnd(v); i++) {
+                Assertions.assertEquals(graph.neighborAt(i), mapped.neighborAt(i));
+                Assertions.assertEquals(graph.edgeIdAt(i), mapped.edgeIdAt(i));
+                Assertions.assertEquals(graph.edgeIdAt(i), mapped.edgeId(v, graph.neighborAt(i)));
+            }
+        }
+        for (int e = 0; e < graph.numEdges(); e++) {
+            Assertions.assertEquals(graph.edgeSource(e), mapped.edgeSource(e));
+            Assertions.assertEquals(graph.edgeTarget(e), mapped.edgeTarget(e));
+        }
+        Assertions.assertEquals(-1, mapped.edgeId(0, 0));
+        Assertions.assertArrayEquals(graph.getVertices(), mapped.copy().getVertices());
+    }
+
+    @Test
+    void importsSnapAndDimacsEdgeLists() throws IOException {
+        Path snap = directory.resolve("snap.txt");
+        Files.writeString(snap, "# Directed graph\n# FromNodeId\tToNodeId\n0\t1\n1\t2\n\n2\t0\n1\t0\n");
+        RawGraph fromSnap = EdgeListImporter.importFile(snap, 0, 2);
+        Assertions.assertEquals(3, fromSnap.numEdges());
+        Assertions.assertEquals(3, fromSnap.numVertices());
+
+        Path dimacs = directory.resolve("graph.gr");
+        Files.writeString(dimacs, "c sample\np sp 4 3\na 1 2 7\na 2 3 1\r\na 3 4 2\n");
+        RawGraph fromDimacs = EdgeListImporter.importFile(dimacs, 1, 4);
+        Assertions.assertEquals(3, fromDimacs.numEdges());
+        Assertions.assertEquals(1, fromDimacs.edgeId(3, 2));
+    }
+}
@@ -0,0 +1,67 @@
+package DistributedRouting.objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for PheromoneStore, covering saturation of deposits, concurrent
+ * updates to the same edge and lazy evaporation.
+ */
+class PheromoneStoreTest {
+
+    @Test
+    void depositSaturatesAtOne() {
+        PheromoneStore store = new PheromoneStore(2, 0.95f, 0.5f, () -> 0);
+        Assertions.assertEquals(0.95f + 0.02f, store.deposit(0, 0.02f), 1e-6);
+        Assertions.assertEquals(0.97f, store.deposit(0, 0.05f), 1e-6);
+        Assertions.assertEquals(0.95f, store.get(1), 1e-6);
+    }
+
+    @Test
+    void concurrentDepositsAreNotLost() {
+        PheromoneStore store = new PheromoneStore(1, 0f, 0.5f, () -> 0);
+        IntStream.range(0, 10000).parallel().forEach(i -> store.deposit(0, 0.00005f));
+        Assertions.assertEquals(0.5f, store.get(0), 1e-3);
+    }
+
+    @Test
+    void levelsDecayWithElapsedTicks() {
+        AtomicInteger clock = new AtomicInteger();
+        PheromoneStore store = new PheromoneStore(2, 0.8f, 0.5f, clock::get);
+        clock.set(2);
+        Assertions.assertEquals(0.2f, store.get(0), 1e-6);
+
+        // A deposit folds the evaporation so far into the stored level.
+        Assertions.assertEquals(0.3f, store.deposit(0, 0.1f), 1e-6);
+        clock.set(3);
+        Assertions.assertEquals(0.15f, store.get(0), 1e-6);
+        Assertions.assertEquals(0.1f, store.get(1), 1e-6);
+    }
+
+    @Test
+    void racingDepositDoesNotMoveTickBack() {
+        AtomicInteger clock = new AtomicInteger();
+        PheromoneStore[] store = new PheromoneStore[1];
+        boolean[] raced = new boolean[1];
+        // The first read of the clock during the deposit below stands in for
+        // another thread depositing at a later tick just around that read.
+        IntSupplier racingClock = () -> {
+            int now = clock.get();
+            if (store[0] != null && !raced[0]) {
+                raced[0] = true;
+                clock.set(5);
+                store[0].deposit(0, 0.1f);
+            }
+            return now;
+        };
+        store[0] = new PheromoneStore(1, 0.5f, 0.5f, racingClock);
+
+        store[0].deposit(0, 0.1f);
+        Assertions.assertTrue(raced[0]);
+        Assertions.assertEquals(0.5f / 32 + 0.2f, store[0].get(0), 1e-6);
+    }
+}
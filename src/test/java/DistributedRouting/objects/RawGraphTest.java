@@ -0,0 +1,128 @@
+package DistributedRouting.objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the CSR layout of RawGraph: neighbor iteration, edge id
+ * assignment and the undirected conversion.
+ */
+class RawGraphTest {
+
+    private static int[] neighborsOf(RawGraph graph, int vertex) {
+        int[] neighbors = new int[graph.degree(vertex)];
+        for (int i = graph.neighborsStart(vertex); i < graph.neighborsEnd(vertex); i++) {
+            neighbors[i - graph.neighborsStart(vertex)] = graph.neighborAt(i);
+        }
+        return neighbors;
+    }
+
+    @Test
+    void directedNeighborsAreSorted() {
+        RawGraph graph = new RawGraph.Builder(1, 4)
+                .addVertexRange(1, 4)
+                .addEdge(1, 4).addEdge(1, 2).addEdge(1, 3).addEdge(1, 2)
+                .build();
+        Assertions.assertEquals(3, graph.numEdges());
+        Assertions.assertArrayEquals(new int[] {2, 3, 4}, neighborsOf(graph, 1));
+        Assertions.assertEquals(0, graph.degree(4));
+        Assertions.assertEquals(0, graph.degree(42));
+    }
+
+    @Test
+    void undirectedEdgesShareIds() {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        Assertions.assertEquals(6, graph.numEdges());
+        Assertions.assertArrayEquals(new int[] {3, 5}, neighborsOf(graph, 6));
+        for (int e = 0; e < graph.numEdges(); e++) {
+            int s = graph.edgeSource(e);
+            int t = graph.edgeTarget(e);
+            Assertions.assertTrue(s <= t);
+            Assertions.assertEquals(e, graph.edgeId(s, t));
+            Assertions.assertEquals(e, graph.edgeId(t, s));
+        }
+        Assertions.assertEquals(-1, graph.edgeId(1, 6));
+    }
+
+    @Test
+    void changesKeepTheIdsOfOtherEdges() {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        int removed = graph.edgeId(2, 3);
+
+        RawGraph changed = graph.withVertex(7).withEdge(7, 2).withEdge(6, 7).withoutEdge(3, 2);
+        Assertions.assertEquals(7, changed.numVertices());
+        Assertions.assertEquals(graph.numEdges() + 1, changed.numEdges());
+        Assertions.assertEquals(-1, changed.edgeId(2, 3));
+        Assertions.assertArrayEquals(new int[] {1, 7}, neighborsOf(changed, 2));
+        Assertions.assertArrayEquals(new int[] {6}, neighborsOf(changed, 3));
+        // The last edge added took over the removed id, every other edge kept its own.
+        Assertions.assertEquals(graph.numEdges(), changed.edgeId(2, 7));
+        Assertions.assertEquals(removed, changed.edgeId(7, 6));
+        Assertions.assertEquals(graph.edgeId(1, 4), changed.edgeId(4, 1));
+        Assertions.assertEquals(graph.edgeId(5, 6), changed.edgeId(6, 5));
+        Assertions.assertEquals(3, changed.maxDegree());
+
+        int[] sources = new int[changed.numEdges()];
+        int[] targets = new int[changed.numEdges()];
+        for (int e = 0; e < sources.length; e++) {
+            sources[e] = changed.edgeSource(e);
+            targets[e] = changed.edgeTarget(e);
+        }
+        RawGraph reindexed = RawGraph.fromEdges(1, 6, true, changed.getVertices(), sources, targets);
+        for (int v = 1; v <= 7; v++) {
+            Assertions.assertArrayEquals(neighborsOf(changed, v), neighborsOf(reindexed, v));
+            for (int i = changed.neighborsStart(v); i < changed.neighborsEnd(v); i++) {
+                Assertions.assertEquals(changed.edgeIdAt(i), reindexed.edgeId(v, changed.neighborAt(i)));
+            }
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> changed.withEdge(2, 7));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> changed.withoutVertex(7));
+        Assertions.assertEquals(6, changed.withoutEdge(2, 7).withoutEdge(6, 7).withoutVertex(7).numVertices());
+    }
+
+    @Test
+    void removingAVertexMatchesRemovingItsEdgesOneByOne() {
+        RawGraph graph = SampleGraphs.fastErdosReyniGraph(60, 0.1, 5, false).asUndirectedGraph();
+        int vertex = 30;
+        RawGraph removed = graph.withoutVertexAndEdges(vertex);
+
+        RawGraph stepwise = graph;
+        for (int e = graph.numEdges() - 1; e >= 0; e--) {
+            if (graph.edgeSource(e) == vertex || graph.edgeTarget(e) == vertex) {
+                stepwise = stepwise.withoutEdge(graph.edgeSource(e), graph.edgeTarget(e));
+            }
+        }
+        stepwise = stepwise.withoutVertex(vertex);
+
+        Assertions.assertEquals(graph.numEdges() - graph.degree(vertex), removed.numEdges());
+        Assertions.assertArrayEquals(stepwise.getVertices(), removed.getVertices());
+        Assertions.assertEquals(stepwise.maxDegree(), removed.maxDegree());
+        for (int e = 0; e < removed.numEdges(); e++) {
+            Assertions.assertEquals(stepwise.edgeSource(e), removed.edgeSource(e));
+            Assertions.assertEquals(stepwise.edgeTarget(e), removed.edgeTarget(e));
+        }
+        for (int v = 0; v < 60; v++) {
+            Assertions.assertArrayEquals(neighborsOf(stepwise, v), neighborsOf(removed, v));
+            for (int i = removed.neighborsStart(v); i < removed.neighborsEnd(v); i++) {
+                Assertions.assertEquals(stepwise.edgeId(v, removed.neighborAt(i)), removed.edgeIdAt(i));
+            }
+        }
+        // The graph it was made from is left as it was.
+        Assertions.assertEquals(graph.numEdges(), graph.withoutVertexAndEdges(vertex).numEdges()
+                + graph.degree(vertex));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> graph.withoutVertexAndEdges(graph.getSource()));
+    }
+
+    @Test
+    void reversedEdgesCollapseWhenUndirected() {
+        RawGraph graph = new RawGraph.Builder(1, 2)
+                .addVertexRange(1, 2)
+                .addEdge(1, 2).addEdge(2, 1)
+                .buildUndirected();
+        Assertions.assertEquals(1, graph.numEdges());
+        Assertions.assertEquals(1, graph.degree(1));
+        Assertions.assertEquals(1, graph.degree(2));
+    }
+}
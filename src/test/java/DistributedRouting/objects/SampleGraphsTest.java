@@ -0,0 +1,52 @@
+package DistributedRouting.objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the large-topology generators of SampleGraphs.
+ */
+class SampleGraphsTest {
+
+    @Test
+    void fastErdosReyniIsIndependentOfParallelism() {
+        RawGraph sequential = SampleGraphs.fastErdosReyniGraph(3000, 0.005, 9, false);
+        RawGraph parallel = SampleGraphs.fastErdosReyniGraph(3000, 0.005, 9, true);
+        Assertions.assertEquals(sequential.numEdges(), parallel.numEdges());
+        for (int e = 0; e < sequential.numEdges(); e++) {
+            Assertions.assertEquals(sequential.edgeSource(e), parallel.edgeSource(e));
+            Assertions.assertEquals(sequential.edgeTarget(e), parallel.edgeTarget(e));
+        }
+        // About p * n * (n - 1) / 2 edges are expected.
+        Assertions.assertEquals(22492, sequential.numEdges(), 600);
+    }
+
+    @Test
+    void fastErdosReyniHandlesExtremeProbabilities() {
+        Assertions.assertEquals(0, SampleGraphs.fastErdosReyniGraph(100, 0, 1, false).numEdges());
+        Assertions.assertEquals(45, SampleGraphs.fastErdosReyniGraph(10, 1, 1, false).numEdges());
+    }
+
+    @Test
+    void randomRegularGraphIsRegular() {
+        RawGraph graph = SampleGraphs.randomRegularGraph(1000, 5, 3);
+        for (int v = 1; v <= 1000; v++) {
+            Assertions.assertEquals(5, graph.degree(v));
+        }
+    }
+
+    @Test
+    void torusWrapsAround() {
+        RawGraph grid = SampleGraphs.gridGraph(4, 5, false);
+        RawGraph torus = SampleGraphs.gridGraph(4, 5, true);
+        Assertions.assertEquals(2, grid.degree(1));
+        Assertions.assertEquals(4, torus.degree(1));
+        Assertions.assertEquals(40, torus.numEdges());
+    }
+
+    @Test
+    void barabasiAlbertAddsMEdgesPerVertex() {
+        RawGraph graph = SampleGraphs.barabasiAlbertGraph(500, 3, 5);
+        Assertions.assertEquals(6 + 3 * (500 - 4), graph.numEdges());
+    }
+}
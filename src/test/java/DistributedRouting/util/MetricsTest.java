@@ -0,0 +1,54 @@
+package DistributedRouting.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Unit tests for the latency histogram and the JMX view of Metrics.
+ */
+class MetricsTest {
+
+    @Test
+    void percentilesResolveToBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+
+        Assertions.assertEquals(100, histogram.count());
+        // 1000ns falls in [512, 1024), 1ms in [2^19, 2^20).
+        Assertions.assertEquals(1023, histogram.percentileNanos(0.5));
+        Assertions.assertEquals(1023, histogram.percentileNanos(0.99));
+        Assertions.assertEquals((1 << 20) - 1, histogram.percentileNanos(1));
+        Assertions.assertEquals(1_000_000, histogram.maxNanos());
+        Assertions.assertEquals(10990, histogram.meanNanos(), 1e-9);
+        Assertions.assertEquals(0, new LatencyHistogram().percentileNanos(0.5));
+    }
+
+    @Test
+    void metricsAreReadableOverJmx() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.latency("GetNeighbors").record(5000);
+        metrics.gauge("answer", () -> 42);
+        metrics.step();
+        String name = "DistributedRouting:type=MetricsTest";
+        metrics.register(name);
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(name);
+        try {
+            Assertions.assertEquals(1L, server.getAttribute(objectName, "Steps"));
+            TabularData counts = (TabularData) server.getAttribute(objectName, "RequestCounts");
+            Assertions.assertEquals(1L, counts.get(new Object[]{"GetNeighbors"}).get("value"));
+            TabularData gauges = (TabularData) server.getAttribute(objectName, "Gauges");
+            Assertions.assertEquals(42L, gauges.get(new Object[]{"answer"}).get("value"));
+        } finally {
+            server.unregisterMBean(objectName);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package DistributedRouting.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+/**
+ * Unit tests for SplitMix64, which must stay in step with SplittableRandom.
+ */
+class SplitMix64Test {
+
+    @Test
+    void matchesSplittableRandom() {
+        SplittableRandom expected = new SplittableRandom(42);
+        SplitMix64 actual = new SplitMix64(42);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(expected.nextLong(), actual.nextLong());
+            Assertions.assertEquals(expected.nextInt(7), actual.nextInt(7));
+            Assertions.assertEquals(expected.nextInt(16), actual.nextInt(16));
+            Assertions.assertEquals(expected.nextDouble(), actual.nextDouble());
+        }
+        SplittableRandom expectedChild = expected.split();
+        SplitMix64 actualChild = actual.split();
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(expectedChild.nextInt(1000), actualChild.nextInt(1000));
+        }
+    }
+
+    @Test
+    void resumesFromItsState() {
+        SplitMix64 random = new SplitMix64(7).split();
+        random.nextLong();
+        SplitMix64 resumed = new SplitMix64(random.getSeed(), random.getGamma());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(random.nextLong(), resumed.nextLong());
+        }
+    }
+}
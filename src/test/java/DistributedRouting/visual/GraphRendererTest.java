@@ -0,0 +1,63 @@
+package DistributedRouting.visual;
+
+import DistributedRouting.AgentController;
+import DistributedRouting.objects.PheromoneStore;
+import DistributedRouting.objects.RawGraph;
+import DistributedRouting.objects.SampleGraphs;
+import org.graphstream.graph.Graph;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for the move ring and the renderer, covering dropping on a full
+ * ring and coalescing of the moves made between two frames.
+ */
+class GraphRendererTest {
+
+    @Test
+    void ringDropsWhenFullAndDrainsInOrder() {
+        MoveRing ring = new MoveRing(4);
+        for (long event = 0; event < 4; event++) {
+            Assertions.assertTrue(ring.offer(event));
+        }
+        Assertions.assertFalse(ring.offer(4));
+
+        List<Long> drained = new ArrayList<>();
+        Assertions.assertEquals(4, ring.drain(drained::add));
+        Assertions.assertEquals(List.of(0L, 1L, 2L, 3L), drained);
+        Assertions.assertTrue(ring.offer(5));
+        Assertions.assertEquals(1, ring.drain(event -> {}));
+    }
+
+    @Test
+    void ringKeepsEveryEventFromConcurrentProducers() {
+        MoveRing ring = new MoveRing(1 << 14);
+        IntStream.range(0, 10000).parallel().forEach(i -> Assertions.assertTrue(ring.offer(i)));
+        long[] sum = new long[1];
+        Assertions.assertEquals(10000, ring.drain(event -> sum[0] += event));
+        Assertions.assertEquals(10000L * 9999 / 2, sum[0]);
+    }
+
+    @Test
+    void frameAppliesLastMoveOfEveryAnt() {
+        RawGraph graph = SampleGraphs.doublePath.asUndirectedGraph();
+        Graph graphVis = AgentController.buildGraph(graph);
+        PheromoneStore pheromones = new PheromoneStore(graph.numEdges(), 1f, 1f, () -> 0);
+        GraphRenderer renderer = new GraphRenderer(graphVis, pheromones, 30, 16);
+        renderer.addAnt(0, "#000000");
+
+        renderer.moved(0, graph.edgeId(1, 2));
+        renderer.moved(0, graph.edgeId(2, 3));
+        renderer.renderFrame();
+
+        Assertions.assertEquals(1.0, (double) graphVis.getEdge(graph.edgeId(1, 2)).getAttribute("ui.color"), 1e-9);
+        // GraphStream records the sprites attached to an element as attributes of it.
+        String spriteAttribute = "ui.sprite." + GraphRenderer.antNameForId(0);
+        Assertions.assertTrue(graphVis.getEdge(graph.edgeId(2, 3)).hasAttribute(spriteAttribute));
+        Assertions.assertFalse(graphVis.getEdge(graph.edgeId(1, 2)).hasAttribute(spriteAttribute));
+    }
+}